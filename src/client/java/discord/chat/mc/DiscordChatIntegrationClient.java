@@ -2,8 +2,11 @@ package discord.chat.mc;
 
 import discord.chat.mc.chat.ChatHandler;
 import discord.chat.mc.command.DiscordCommand;
+import discord.chat.mc.concurrent.ModExecutors;
 import discord.chat.mc.config.ModConfig;
 import discord.chat.mc.websocket.DiscordWebSocketServer;
+import discord.chat.mc.websocket.SessionStatePublisher;
+import discord.chat.mc.websocket.TickPublisher;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
@@ -26,6 +29,8 @@ public class DiscordChatIntegrationClient implements ClientModInitializer {
 			ChatHandler.getInstance().shutdown();
 		});
 		ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> showStatusOnJoin());
+		SessionStatePublisher.getInstance().register();
+		TickPublisher.getInstance().register();
 		
 		DiscordChatIntegration.LOGGER.info("Discord Chat Integration client initialized!");
 	}
@@ -58,7 +63,7 @@ public class DiscordChatIntegrationClient implements ClientModInitializer {
 		DiscordWebSocketServer server = DiscordWebSocketServer.getInstance();
 		server.setMessageHandler(message -> ChatHandler.getInstance().handleDiscordMessage(message));
 		
-		new Thread(() -> {
+		ModExecutors.start("Discord-WebSocket-Server", () -> {
 			try {
 				server.start();
 				int attempts = 0;
@@ -87,7 +92,7 @@ public class DiscordChatIntegrationClient implements ClientModInitializer {
 					showGenericError();
 				}
 			}
-		}, "Discord-WebSocket-Server").start();
+		});
 	}
 	
 	private void stopWebSocketServer() {
@@ -1,50 +1,56 @@
 package discord.chat.mc.chat;
 
 import discord.chat.mc.DiscordChatIntegration;
+import discord.chat.mc.concurrent.KeyedSerialExecutor;
+import discord.chat.mc.concurrent.ModExecutors;
+import discord.chat.mc.config.ModConfig;
 import discord.chat.mc.websocket.DiscordWebSocketServer;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.minecraft.client.Minecraft;
 
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ChatHandler {
     private static ChatHandler instance;
     
     private final AtomicBoolean isSendingFromDiscord = new AtomicBoolean(false);
-    private final ConcurrentHashMap<String, Boolean> processedMessageIds = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Long> sentFromDiscord = new ConcurrentHashMap<>();
+    private final MessageDeduplicator processedMessageIds = new MessageDeduplicator(ModConfig.getInstance().getDedupCapacity(),
+        ModConfig.getInstance().getDedupWindowSeconds() * 1000L);
+    private final ExecutedMessageStore executedMessages = openExecutedMessageStore();
     private static final long SENT_FROM_DISCORD_WINDOW_MS = 3000;
+    private final EchoSuppressor sentFromDiscord = new EchoSuppressor(SENT_FROM_DISCORD_WINDOW_MS);
+    private final ChatLineParser chatFormats = new ChatLineParser(ModConfig.getInstance().getChatFormats());
     private final ConcurrentLinkedQueue<DiscordWebSocketServer.ChatMessage> tickSyncQueue = new ConcurrentLinkedQueue<>();
     
-    private volatile String lastSyncGroup = "none";
     private volatile long lastTargetTick = -1;
     private volatile long lastExecutionTick = -1;
     private volatile long lastReceiveTime = -1;
     private volatile long lastExecutionTime = -1;
     private boolean tickListenerRegistered = false;
     
-    private final ExecutorService messageProcessor = Executors.newFixedThreadPool(2, r -> {
-        Thread t = new Thread(r, "Discord-Message-Processor");
-        t.setDaemon(true);
-        return t;
-    });
-    
-    private final ExecutorService discordForwardExecutor = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "Discord-Forward-Processor");
-        t.setDaemon(true);
-        return t;
-    });
+    private final KeyedSerialExecutor messageProcessor = ModExecutors.newKeyedExecutor("Discord-Message-Processor", 2,
+        ModConfig.getInstance().getInboundQueueCapacity());
+    private final AtomicLong rejectedMessages = new AtomicLong();
+    private final ScheduledExecutorService sendStateResetter = ModExecutors.newScheduler("Discord-Send-State-Reset");
+    private final ExecutorService discordForwardExecutor = ModExecutors.newSerialExecutor("Discord-Forward-Processor");
     
     public static ChatHandler getInstance() {
         if (instance == null) {
             instance = new ChatHandler();
-            instance.messageProcessor.execute(() -> {});
             instance.registerTickListener();
         }
         return instance;
     }
     
+    private static ExecutedMessageStore openExecutedMessageStore() {
+        ModConfig config = ModConfig.getInstance();
+        if (!config.isExecutedLogEnabled()) return null;
+        return ExecutedMessageStore.open(config.getExecutedLogPath(), config.getExecutedLogSlots(),
+            config.getExecutedLogRetentionHours() * 3_600_000L);
+    }
+    
     private void registerTickListener() {
         if (tickListenerRegistered) return;
         
@@ -79,32 +85,26 @@ public class ChatHandler {
         tickListenerRegistered = true;
     }
     
-    public String getLastSyncGroup() { return lastSyncGroup; }
-    
-    public void setLastSyncGroup(String syncGroup) {
-        if (syncGroup != null && !syncGroup.isEmpty()) {
-            this.lastSyncGroup = syncGroup;
-        }
-    }
-    
     public long[] getLastExecutionInfo() {
         if (lastExecutionTime < 0) return null;
         return new long[] { lastTargetTick, lastExecutionTick, lastReceiveTime, lastExecutionTime };
     }
     
-    public void handleDiscordMessage(DiscordWebSocketServer.ChatMessage message) {
+    /**
+     * @return false if the processing queue is full and the message was dropped, so the sender can be told
+     */
+    public boolean handleDiscordMessage(DiscordWebSocketServer.ChatMessage message) {
         Minecraft client = Minecraft.getInstance();
-        if (client == null || client.player == null || client.player.connection == null) return;
+        if (client == null || client.player == null || client.player.connection == null) return true;
         
-        messageProcessor.execute(() -> {
+        boolean queued = messageProcessor.tryExecute(message.orderingKey(), () -> {
             try {
                 if (message.messageId != null && !message.messageId.isEmpty()) {
-                    if (processedMessageIds.putIfAbsent(message.messageId, Boolean.TRUE) != null) return;
-                    if (processedMessageIds.size() > 2000) processedMessageIds.clear();
+                    if (!processedMessageIds.markIfAbsent(message.messageId)) return;
+                    if (executedMessages != null && executedMessages.contains(message.messageId)) {
+                        DiscordChatIntegration.LOGGER.debug("Skipping Discord message {}: already executed before restart", message.messageId);
+                        return;
                     }
-                
-                if (message.syncGroup != null && !message.syncGroup.isEmpty()) {
-                    lastSyncGroup = message.syncGroup;
                 }
                 
                 if (message.targetTick >= 0) {
@@ -124,6 +124,11 @@ public class ChatHandler {
                 DiscordChatIntegration.LOGGER.error("Error processing Discord message: {}", e.getMessage());
             }
         });
+        if (!queued) {
+            rejectedMessages.incrementAndGet();
+            DiscordChatIntegration.LOGGER.debug("Dropped Discord message: processing queue is full");
+        }
+        return queued;
     }
     
     private void executeMessageImmediately(DiscordWebSocketServer.ChatMessage message) {
@@ -135,16 +140,7 @@ public class ChatHandler {
         }
         
         try {
-            String playerName = getPlayerName(client);
-            if (playerName != null) {
-                sentFromDiscord.put("<" + playerName + "> " + message.content, System.currentTimeMillis());
-            }
-            sentFromDiscord.put(message.content, System.currentTimeMillis());
-            
-            if (sentFromDiscord.size() > 100) {
-                long cutoff = System.currentTimeMillis() - SENT_FROM_DISCORD_WINDOW_MS;
-                sentFromDiscord.entrySet().removeIf(entry -> entry.getValue() < cutoff);
-            }
+            sentFromDiscord.register(System.currentTimeMillis(), message.content);
             
             client.execute(() -> {
                 try {
@@ -153,13 +149,13 @@ public class ChatHandler {
                     } else {
                         client.player.connection.sendChat(message.content);
                     }
+                    if (executedMessages != null && message.messageId != null && !message.messageId.isEmpty()) {
+                        executedMessages.record(message.messageId);
+                    }
                 } catch (Exception e) {
                     DiscordChatIntegration.LOGGER.error("Error sending to chat: {}", e.getMessage());
                 } finally {
-                    messageProcessor.execute(() -> {
-                        try { Thread.sleep(100); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-                        isSendingFromDiscord.set(false);
-                    });
+                    sendStateResetter.schedule(() -> isSendingFromDiscord.set(false), 100, TimeUnit.MILLISECONDS);
                 }
             });
         } catch (Exception e) {
@@ -169,36 +165,24 @@ public class ChatHandler {
     }
     
     public void handleIncomingMinecraftMessage(String playerName, String message) {
+        if (isEcho(message)) return;
+        sendToDiscordForLogging(playerName, message);
+    }
+    
+    private boolean isEcho(String message) {
         long now = System.currentTimeMillis();
+        ChatLineParser.ParsedLine line = chatFormats.parse(message);
+        // A line in no known format only counts as an echo when it is exactly what was sent; a substring
+        // test would let a short message swallow unrelated lines such as "[Server] hi everyone".
+        if (line == null) return sentFromDiscord.consumeExact(message, now);
         
-        Long sentTime = sentFromDiscord.get(message);
-        if (sentTime != null && (now - sentTime) < SENT_FROM_DISCORD_WINDOW_MS) {
-            sentFromDiscord.remove(message);
-            return;
-        }
-        
-        if (!sentFromDiscord.isEmpty()) {
-            long cutoff = now - SENT_FROM_DISCORD_WINDOW_MS;
-            for (var entry : sentFromDiscord.entrySet()) {
-                if (entry.getValue() < cutoff) {
-                    sentFromDiscord.remove(entry.getKey());
-                } else if (message.contains(entry.getKey()) || entry.getKey().equals(message)) {
-                    sentFromDiscord.remove(entry.getKey());
-                    return;
-                }
-            }
-        }
-        
-        sendToDiscordForLogging(playerName, message);
+        String ownName = getPlayerName(Minecraft.getInstance());
+        if (ownName != null && !ownName.equalsIgnoreCase(line.sender)) return false;
+        return sentFromDiscord.consumeExact(line.body, now);
     }
     
     private void sendToDiscordForLogging(String playerName, String message) {
-        discordForwardExecutor.execute(() -> {
-            DiscordWebSocketServer server = DiscordWebSocketServer.getInstance();
-            if (server != null && server.isRunning() && server.getConnectionCount() > 0) {
-                server.broadcastMinecraftMessage(playerName, message);
-            }
-        });
+        discordForwardExecutor.execute(() -> DiscordWebSocketServer.forwardMinecraftMessage(playerName, message));
     }
     
     private String getPlayerName(Minecraft client) {
@@ -224,9 +208,16 @@ public class ChatHandler {
         return null;
     }
     
+    public int getPendingMessageCount() { return messageProcessor.getPendingCount(); }
+    public long getRejectedMessageCount() { return rejectedMessages.get(); }
+    public MessageDeduplicator getProcessedMessageIds() { return processedMessageIds; }
+    public ExecutedMessageStore getExecutedMessages() { return executedMessages; }
+    public EchoSuppressor getEchoSuppressor() { return sentFromDiscord; }
+    
     public void shutdown() {
         messageProcessor.shutdown();
         discordForwardExecutor.shutdown();
+        sendStateResetter.shutdown();
         try {
             if (!messageProcessor.awaitTermination(2, TimeUnit.SECONDS)) messageProcessor.shutdownNow();
             if (!discordForwardExecutor.awaitTermination(2, TimeUnit.SECONDS)) discordForwardExecutor.shutdownNow();
@@ -235,6 +226,7 @@ public class ChatHandler {
             discordForwardExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        if (executedMessages != null) executedMessages.close();
     }
 }
 
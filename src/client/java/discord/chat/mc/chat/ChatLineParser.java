@@ -0,0 +1,73 @@
+package discord.chat.mc.chat;
+
+import discord.chat.mc.DiscordChatIntegration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits chat lines into sender and body using the server's chat formats. Templates such as
+ * {@code "[{rank}] {sender} » {message}"} are compiled once into anchored regexes: {@code {sender}} matches a
+ * single word, {@code {message}} the rest of the line and any other placeholder a lazy run of text.
+ */
+public class ChatLineParser {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\w+)}");
+    
+    private final List<Pattern> formats = new ArrayList<>();
+    
+    public ChatLineParser(List<String> templates) {
+        for (String template : templates) {
+            Pattern format = compile(template);
+            if (format != null) formats.add(format);
+        }
+    }
+    
+    static Pattern compile(String template) {
+        if (template == null || !template.contains("{sender}") || !template.contains("{message}")) {
+            DiscordChatIntegration.LOGGER.warn("Ignoring chat format without {sender} and {message}: '{}'", template);
+            return null;
+        }
+        
+        StringBuilder regex = new StringBuilder("^");
+        Matcher placeholder = PLACEHOLDER.matcher(template);
+        int literalStart = 0;
+        while (placeholder.find()) {
+            if (placeholder.start() > literalStart) regex.append(Pattern.quote(template.substring(literalStart, placeholder.start())));
+            switch (placeholder.group(1)) {
+                case "sender" -> regex.append("(?<sender>\\S+?)");
+                case "message" -> regex.append("(?<message>.*)");
+                default -> regex.append(".*?");
+            }
+            literalStart = placeholder.end();
+        }
+        if (literalStart < template.length()) regex.append(Pattern.quote(template.substring(literalStart)));
+        regex.append('$');
+        
+        try {
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        } catch (IllegalArgumentException e) {
+            DiscordChatIntegration.LOGGER.warn("Ignoring chat format '{}': {}", template, e.getMessage());
+            return null;
+        }
+    }
+    
+    public ParsedLine parse(String line) {
+        for (Pattern format : formats) {
+            Matcher matcher = format.matcher(line);
+            if (matcher.matches()) return new ParsedLine(matcher.group("sender"), matcher.group("message"));
+        }
+        return null;
+    }
+    
+    public static class ParsedLine {
+        public final String sender;
+        public final String body;
+        
+        public ParsedLine(String sender, String body) {
+            this.sender = sender;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package discord.chat.mc.chat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recognises chat lines that echo something we just sent from Discord. Sent texts are indexed by their exact
+ * content, so checking a line is a single hash lookup no matter how many sends are pending; the caller
+ * extracts the body with {@link ChatLineParser} first. Sending the same text twice expects two echoes.
+ * Expiry is driven by a timer wheel, so nothing is ever scanned by age.
+ */
+public class EchoSuppressor {
+    private static final long TICK_MS = 100;
+    
+    private final long windowMs;
+    private final Map<String, Echo> pendingByText = new HashMap<>();
+    private final List<List<Echo>> wheel = new ArrayList<>();
+    private long wheelTick = Long.MIN_VALUE;
+    private int pending = 0;
+    
+    private long suppressed = 0;
+    private long expired = 0;
+    
+    public EchoSuppressor(long windowMs) {
+        this.windowMs = Math.max(TICK_MS, windowMs);
+        int slots = (int) (this.windowMs / TICK_MS) + 2;
+        for (int i = 0; i < slots; i++) wheel.add(new ArrayList<>());
+    }
+    
+    public synchronized void register(long now, String text) {
+        if (text == null || text.isEmpty()) return;
+        advance(now);
+        Echo echo = pendingByText.computeIfAbsent(text, Echo::new);
+        echo.remaining++;
+        echo.deadline = now + windowMs;
+        pending++;
+        wheel.get(slotOfTick(echo.deadline / TICK_MS)).add(echo);
+    }
+    
+    public synchronized boolean consumeExact(String text, long now) {
+        advance(now);
+        Echo echo = pendingByText.get(text);
+        if (echo == null) return false;
+        if (echo.deadline <= now) {
+            expire(echo);
+            return false;
+        }
+        suppressed++;
+        pending--;
+        if (--echo.remaining == 0) pendingByText.remove(text);
+        return true;
+    }
+    
+    private void advance(long now) {
+        long currentTick = now / TICK_MS;
+        if (wheelTick == Long.MIN_VALUE || currentTick - wheelTick > wheel.size()) wheelTick = currentTick - wheel.size();
+        for (; wheelTick < currentTick; wheelTick++) {
+            List<Echo> slot = wheel.get(slotOfTick(wheelTick));
+            if (slot.isEmpty()) continue;
+            for (Echo echo : slot) {
+                // A re-sent text moves its deadline and is queued again, so only the latest slot retires it.
+                if (echo.deadline <= now && pendingByText.get(echo.text) == echo) expire(echo);
+            }
+            slot.clear();
+        }
+    }
+    
+    private int slotOfTick(long tick) {
+        return (int) Math.floorMod(tick, (long) wheel.size());
+    }
+    
+    private void expire(Echo echo) {
+        pendingByText.remove(echo.text);
+        expired += echo.remaining;
+        pending -= echo.remaining;
+    }
+    
+    public synchronized int getPendingCount() { return pending; }
+    public synchronized long getSuppressedCount() { return suppressed; }
+    public synchronized long getExpiredCount() { return expired; }
+    
+    private static final class Echo {
+        private final String text;
+        private long deadline;
+        private int remaining = 0;
+        
+        private Echo(String text) {
+            this.text = text;
+        }
+    }
+}
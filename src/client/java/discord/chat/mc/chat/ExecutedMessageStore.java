@@ -0,0 +1,171 @@
+package discord.chat.mc.chat;
+
+import discord.chat.mc.DiscordChatIntegration;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped record of executed Discord message IDs, so messages replayed after a crash or restart are
+ * not run twice. The file is a fixed-size open-addressing table of (key, executedAt) pairs: snowflakes are
+ * stored as-is, other IDs as a 64-bit hash with the sign bit set. Entries past the retention period are
+ * reused as free slots, and the table is compacted when opened and whenever three quarters of it is taken.
+ * Writes land in the page cache, so they survive the game crashing; they are forced to disk on close.
+ */
+public class ExecutedMessageStore {
+    private static final int MAGIC = 0x44434945;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int SLOT_BYTES = 16;
+    
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slots;
+    private final int mask;
+    private final long retentionMs;
+    private int occupied = 0;
+    private long replaysSkipped = 0;
+    private long compactions = 0;
+    
+    private ExecutedMessageStore(FileChannel channel, MappedByteBuffer buffer, int slots, long retentionMs) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slots = slots;
+        this.mask = slots - 1;
+        this.retentionMs = retentionMs;
+    }
+    
+    public static ExecutedMessageStore open(Path path, int requestedSlots, long retentionMs) {
+        int slots = Integer.highestOneBit(Math.max(64, requestedSlots) - 1) << 1;
+        long size = HEADER_BYTES + (long) slots * SLOT_BYTES;
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() != size) channel.truncate(0);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            
+            ExecutedMessageStore store = new ExecutedMessageStore(channel, buffer, slots, retentionMs);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != slots) {
+                store.reset();
+            }
+            store.compact(System.currentTimeMillis());
+            DiscordChatIntegration.LOGGER.info("Tracking executed Discord messages in {} ({} of {} slots in use)",
+                path, store.occupied, slots);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            DiscordChatIntegration.LOGGER.warn("Executed message log unavailable at {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+    
+    private void reset() {
+        for (int i = 0; i < slots; i++) writeSlot(i, 0, 0);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, slots);
+        buffer.putInt(12, 0);
+    }
+    
+    public synchronized boolean contains(String messageId) {
+        long key = keyOf(messageId);
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            long stored = keyAt(slot);
+            if (stored == 0) return false;
+            if (stored == key) {
+                if (timeAt(slot) < cutoff) return false;
+                replaysSkipped++;
+                return true;
+            }
+        }
+    }
+    
+    public synchronized void record(String messageId) {
+        long key = keyOf(messageId);
+        long now = System.currentTimeMillis();
+        long cutoff = now - retentionMs;
+        int reusable = -1;
+        int slot = slotOf(key);
+        for (; ; slot = (slot + 1) & mask) {
+            long stored = keyAt(slot);
+            if (stored == 0) break;
+            if (stored == key) {
+                writeSlot(slot, key, now);
+                return;
+            }
+            if (reusable < 0 && timeAt(slot) < cutoff) reusable = slot;
+        }
+        
+        if (reusable >= 0) {
+            writeSlot(reusable, key, now);
+            return;
+        }
+        writeSlot(slot, key, now);
+        if (++occupied > slots / 4 * 3) compact(now);
+    }
+    
+    private void compact(long now) {
+        long cutoff = now - retentionMs;
+        long[][] live = new long[slots][];
+        int count = 0;
+        for (int i = 0; i < slots; i++) {
+            long key = keyAt(i);
+            if (key != 0 && timeAt(i) >= cutoff) live[count++] = new long[] { key, timeAt(i) };
+        }
+        
+        int keep = Math.min(count, slots / 2);
+        if (keep < count) Arrays.sort(live, 0, count, (a, b) -> Long.compare(b[1], a[1]));
+        for (int i = 0; i < slots; i++) writeSlot(i, 0, 0);
+        for (int i = 0; i < keep; i++) {
+            int slot = slotOf(live[i][0]);
+            while (keyAt(slot) != 0) slot = (slot + 1) & mask;
+            writeSlot(slot, live[i][0], live[i][1]);
+        }
+        occupied = keep;
+        compactions++;
+    }
+    
+    private static long keyOf(String messageId) {
+        long snowflake = SnowflakeIdSet.parse(messageId);
+        if (snowflake > 0) return snowflake;
+        
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash ^= messageId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash | Long.MIN_VALUE;
+    }
+    
+    private int slotOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+    
+    private long keyAt(int slot) { return buffer.getLong(HEADER_BYTES + slot * SLOT_BYTES); }
+    private long timeAt(int slot) { return buffer.getLong(HEADER_BYTES + slot * SLOT_BYTES + 8); }
+    
+    private void writeSlot(int slot, long key, long executedAt) {
+        buffer.putLong(HEADER_BYTES + slot * SLOT_BYTES + 8, executedAt);
+        buffer.putLong(HEADER_BYTES + slot * SLOT_BYTES, key);
+    }
+    
+    public synchronized int getOccupiedCount() { return occupied; }
+    public int getSlotCount() { return slots; }
+    public synchronized long getReplaysSkipped() { return replaysSkipped; }
+    public synchronized long getCompactionCount() { return compactions; }
+    
+    public synchronized void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            DiscordChatIntegration.LOGGER.warn("Failed to close executed message log: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package discord.chat.mc.chat;
+
+/**
+ * Decides whether a Discord message ID has already been executed. Snowflake IDs whose timestamp is plausible
+ * go to the primitive {@link SnowflakeIdSet}; anything else, such as IDs made up by scripts or snowflakes
+ * dated outside the window, falls back to {@link RecentMessageIds}.
+ */
+public class MessageDeduplicator {
+    private final SnowflakeIdSet snowflakes;
+    private final RecentMessageIds otherIds;
+    
+    public MessageDeduplicator(int capacity, long windowMs) {
+        this.snowflakes = new SnowflakeIdSet(capacity, windowMs);
+        this.otherIds = new RecentMessageIds(capacity, windowMs);
+    }
+    
+    public boolean markIfAbsent(String messageId) {
+        long now = System.currentTimeMillis();
+        long snowflake = SnowflakeIdSet.parse(messageId);
+        if (snowflake > 0) {
+            if (snowflakes.isInRange(snowflake, now)) return snowflakes.markIfAbsent(snowflake, now);
+            snowflakes.recordOutOfRange();
+        }
+        return otherIds.markIfAbsent(messageId, now);
+    }
+    
+    public SnowflakeIdSet getSnowflakes() { return snowflakes; }
+    public RecentMessageIds getOtherIds() { return otherIds; }
+}
@@ -0,0 +1,76 @@
+package discord.chat.mc.chat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Remembers message IDs seen within a time window, up to a fixed capacity. IDs sit in a ring in arrival
+ * order with a hash index over it, so the oldest entry is always the next to go, whether it ages out of
+ * the window or is pushed out by a new arrival when the ring is full.
+ */
+public class RecentMessageIds {
+    private final String[] ids;
+    private final long[] seenAt;
+    private final Set<String> index;
+    private final long windowMs;
+    private int head = 0;
+    private int size = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+    
+    public RecentMessageIds(int capacity, long windowMs) {
+        int slots = Math.max(1, capacity);
+        this.ids = new String[slots];
+        this.seenAt = new long[slots];
+        this.index = new HashSet<>(slots * 4 / 3 + 1);
+        this.windowMs = Math.max(0, windowMs);
+    }
+    
+    public boolean markIfAbsent(String id) {
+        return markIfAbsent(id, System.currentTimeMillis());
+    }
+    
+    public synchronized boolean markIfAbsent(String id, long now) {
+        expire(now);
+        if (index.contains(id)) {
+            hits++;
+            return false;
+        }
+        
+        misses++;
+        if (size == ids.length) {
+            removeOldest();
+            evictions++;
+        }
+        int slot = (head + size) % ids.length;
+        ids[slot] = id;
+        seenAt[slot] = now;
+        index.add(id);
+        size++;
+        return true;
+    }
+    
+    private void expire(long now) {
+        long cutoff = now - windowMs;
+        while (size > 0 && seenAt[head] < cutoff) {
+            removeOldest();
+            expirations++;
+        }
+    }
+    
+    private void removeOldest() {
+        index.remove(ids[head]);
+        ids[head] = null;
+        head = (head + 1) % ids.length;
+        size--;
+    }
+    
+    public synchronized int size() { return size; }
+    public int getCapacity() { return ids.length; }
+    public synchronized long getHitCount() { return hits; }
+    public synchronized long getMissCount() { return misses; }
+    public synchronized long getEvictionCount() { return evictions; }
+    public synchronized long getExpirationCount() { return expirations; }
+}
@@ -0,0 +1,157 @@
+package discord.chat.mc.chat;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free set of Discord snowflake IDs. IDs live in two open-addressing {@code long} tables, the
+ * current generation and the one before it; once the current one spans half the window it becomes the
+ * previous one and the oldest table is wiped for reuse. Everything up to the highest ID of a discarded
+ * generation falls below the watermark and is rejected as too old without a lookup.
+ * <p>
+ * Rotation is driven by time alone. A burst that fills the current table doubles it instead, because
+ * rotating early would discard a generation that is still inside the window and raise the watermark past
+ * IDs that may yet arrive late. A grown table is dropped for one of the original size when it is recycled,
+ * and the inbound rate limits bound how far a generation can grow.
+ * <p>
+ * Only IDs whose embedded timestamp lies between {@code now - window} and {@code now + skew} are taken, see
+ * {@link #isInRange}; a forged far-future ID would otherwise raise the watermark past every real one.
+ */
+public class SnowflakeIdSet {
+    public static final long DISCORD_EPOCH = 1420070400000L;
+    
+    private static final int TIMESTAMP_SHIFT = 22;
+    private static final int MIN_DIGITS = 17;
+    private static final int MAX_DIGITS = 19;
+    private static final long MAX_CLOCK_SKEW_MS = 60_000;
+    
+    private final long generationSpanMs;
+    private final long windowMs;
+    private final int tableSize;
+    private long[] current;
+    private long[] previous;
+    private int currentSize = 0;
+    private long currentStartMs = 0;
+    private long currentMaxId = 0;
+    private long previousMaxId = 0;
+    private long watermark = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long tooOld = 0;
+    private long outOfRange = 0;
+    private long rotations = 0;
+    private long grows = 0;
+    
+    public SnowflakeIdSet(int capacity, long windowMs) {
+        int generationCapacity = Math.max(16, capacity);
+        this.generationSpanMs = Math.max(1, windowMs / 2);
+        this.windowMs = Math.max(0, windowMs);
+        this.tableSize = Integer.highestOneBit(generationCapacity * 2 - 1) << 1;
+        this.current = new long[tableSize];
+        this.previous = new long[tableSize];
+    }
+    
+    public static long parse(String id) {
+        int length = id.length();
+        if (length < MIN_DIGITS || length > MAX_DIGITS) return -1;
+        
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = id.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+    
+    public static long timestampOf(long snowflake) {
+        return (snowflake >>> TIMESTAMP_SHIFT) + DISCORD_EPOCH;
+    }
+    
+    public boolean isInRange(long snowflake, long now) {
+        long timestamp = timestampOf(snowflake);
+        return timestamp >= now - windowMs && timestamp <= now + MAX_CLOCK_SKEW_MS;
+    }
+    
+    public synchronized void recordOutOfRange() {
+        outOfRange++;
+    }
+    
+    public boolean markIfAbsent(long id) {
+        return markIfAbsent(id, System.currentTimeMillis());
+    }
+    
+    public synchronized boolean markIfAbsent(long id, long now) {
+        if (!isInRange(id, now)) throw new IllegalArgumentException("Snowflake " + id + " is outside the dedup window");
+        if (id < watermark) {
+            tooOld++;
+            return false;
+        }
+        if (contains(current, id) || contains(previous, id)) {
+            hits++;
+            return false;
+        }
+        
+        misses++;
+        long timestamp = timestampOf(id);
+        if (currentSize > 0 && timestamp - currentStartMs > generationSpanMs) rotate();
+        if (currentSize == 0) currentStartMs = timestamp;
+        if ((currentSize + 1) * 2 > current.length) grow();
+        insert(current, id);
+        currentSize++;
+        currentMaxId = Math.max(currentMaxId, id);
+        return true;
+    }
+    
+    private void rotate() {
+        if (previousMaxId > 0) watermark = Math.max(watermark, previousMaxId + 1);
+        long[] recycled = previous;
+        if (recycled.length == tableSize) {
+            Arrays.fill(recycled, 0);
+        } else {
+            recycled = new long[tableSize];
+        }
+        previous = current;
+        previousMaxId = currentMaxId;
+        current = recycled;
+        currentSize = 0;
+        currentMaxId = 0;
+        rotations++;
+    }
+    
+    private void grow() {
+        long[] larger = new long[current.length * 2];
+        for (long id : current) {
+            if (id != 0) insert(larger, id);
+        }
+        current = larger;
+        grows++;
+    }
+    
+    private static boolean contains(long[] table, long id) {
+        int mask = table.length - 1;
+        for (int slot = slotOf(id, mask); table[slot] != 0; slot = (slot + 1) & mask) {
+            if (table[slot] == id) return true;
+        }
+        return false;
+    }
+    
+    private static void insert(long[] table, long id) {
+        int mask = table.length - 1;
+        int slot = slotOf(id, mask);
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = id;
+    }
+    
+    private static int slotOf(long id, int mask) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+    
+    public synchronized long getWatermark() { return watermark; }
+    public synchronized long getHitCount() { return hits; }
+    public synchronized long getMissCount() { return misses; }
+    public synchronized long getTooOldCount() { return tooOld; }
+    public synchronized long getOutOfRangeCount() { return outOfRange; }
+    public synchronized long getRotationCount() { return rotations; }
+    public synchronized long getGrowCount() { return grows; }
+}
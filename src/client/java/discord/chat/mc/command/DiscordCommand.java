@@ -5,26 +5,38 @@ import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.suggestion.SuggestionProvider;
 import discord.chat.mc.chat.ChatHandler;
+import discord.chat.mc.chat.EchoSuppressor;
+import discord.chat.mc.chat.ExecutedMessageStore;
+import discord.chat.mc.chat.RecentMessageIds;
+import discord.chat.mc.chat.SnowflakeIdSet;
+import discord.chat.mc.concurrent.ModExecutors;
 import discord.chat.mc.config.ModConfig;
+import discord.chat.mc.websocket.AdmissionControl;
+import discord.chat.mc.websocket.AutomationRpc;
+import discord.chat.mc.websocket.ClientSession;
 import discord.chat.mc.websocket.DiscordWebSocketServer;
+import discord.chat.mc.websocket.DrainReport;
+import discord.chat.mc.websocket.InboundMessages;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
 import net.minecraft.client.Minecraft;
 import net.minecraft.commands.CommandBuildContext;
-import net.minecraft.commands.SharedSuggestionProvider;
 import net.minecraft.network.chat.Component;
 
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class DiscordCommand {
     
+    private static final int MAX_AUTOMATION_SUGGESTIONS = 20;
+    
     private static final SuggestionProvider<FabricClientCommandSource> AUTOMATION_SUGGESTIONS = (context, builder) -> {
         DiscordWebSocketServer server = DiscordWebSocketServer.getInstance();
         if (server != null && server.isRunning()) {
-            server.requestAutomationsList();
-            List<String> names = server.getCachedAutomationNames();
-            return SharedSuggestionProvider.suggest(names, builder);
+            for (String name : server.getAutomationCatalog().suggest(builder.getRemaining(), MAX_AUTOMATION_SUGGESTIONS)) {
+                builder.suggest(name);
+            }
         }
         return builder.buildFuture();
     };
@@ -46,6 +58,12 @@ public class DiscordCommand {
                         return 1;
                     })
                 )
+                .then(ClientCommandManager.literal("stats")
+                    .executes(context -> {
+                        showStats(context.getSource());
+                        return 1;
+                    })
+                )
                 .then(ClientCommandManager.literal("port")
                     .then(ClientCommandManager.argument("port", IntegerArgumentType.integer(1024, 65535))
                         .executes(context -> {
@@ -123,6 +141,62 @@ public class DiscordCommand {
         source.sendFeedback(Component.literal(status.toString()));
     }
     
+    private static void showStats(FabricClientCommandSource source) {
+        DiscordWebSocketServer server = DiscordWebSocketServer.getInstance();
+        if (server == null || !server.isRunning()) {
+            source.sendFeedback(Component.literal("§cWebSocket server is not running.§r"));
+            return;
+        }
+        
+        AdmissionControl admission = server.getAdmissionControl();
+        ChatHandler chatHandler = ChatHandler.getInstance();
+        ModConfig config = ModConfig.getInstance();
+        long sent = 0;
+        long dropped = 0;
+        for (ClientSession session : server.getSessions()) {
+            sent += session.getOutbox().getSentCount();
+            dropped += session.getOutbox().getDroppedCount();
+        }
+        
+        StringBuilder stats = new StringBuilder();
+        stats.append("§6=== Discord Chat Integration Stats ===§r\n");
+        stats.append(String.format("§7Connections: §f%d§7/§f%d§7 (rejected: §f%d§7)§r\n",
+            server.getConnectionCount(), admission.getMaxConnections(), admission.getConnectionsRejectedCount()));
+        stats.append(String.format("§7Inbound accepted: §f%d§r\n", admission.getAcceptedCount()));
+        stats.append(String.format("§7Rate limited: §f%d§7 per connection, §f%d§7 per type§r\n",
+            admission.getSessionRateLimitedCount(), admission.getTypeRateLimitedCount()));
+        stats.append(String.format("§7Inbound queue: §f%d§7/§f%d§7 (rejected: §f%d§7)§r\n",
+            server.getInboundQueueDepth(), config.getInboundQueueCapacity(), admission.getQueueRejectedCount()));
+        stats.append(String.format("§7Chat queue: §f%d§7 (rejected: §f%d§7)§r\n",
+            chatHandler.getPendingMessageCount(), chatHandler.getRejectedMessageCount()));
+        SnowflakeIdSet snowflakes = chatHandler.getProcessedMessageIds().getSnowflakes();
+        stats.append(String.format("§7Dedup (snowflake): §f%d§7 duplicates, §f%d§7 new, §f%d§7 too old, §f%d§7 out of range, §f%d§7 rotations, §f%d§7 grows§r\n",
+            snowflakes.getHitCount(), snowflakes.getMissCount(), snowflakes.getTooOldCount(), snowflakes.getOutOfRangeCount(),
+            snowflakes.getRotationCount(), snowflakes.getGrowCount()));
+        RecentMessageIds otherIds = chatHandler.getProcessedMessageIds().getOtherIds();
+        stats.append(String.format("§7Dedup (other): §f%d§7/§f%d§7 ids, §f%d§7 duplicates, §f%d§7 new, §f%d§7 evicted, §f%d§7 expired§r\n",
+            otherIds.size(), otherIds.getCapacity(), otherIds.getHitCount(), otherIds.getMissCount(), otherIds.getEvictionCount(),
+            otherIds.getExpirationCount()));
+        EchoSuppressor echoes = chatHandler.getEchoSuppressor();
+        stats.append(String.format("§7Echo suppression: §f%d§7 pending, §f%d§7 suppressed, §f%d§7 expired§r\n",
+            echoes.getPendingCount(), echoes.getSuppressedCount(), echoes.getExpiredCount()));
+        ExecutedMessageStore executed = chatHandler.getExecutedMessages();
+        if (executed != null) {
+            stats.append(String.format("§7Executed log: §f%d§7/§f%d§7 slots, §f%d§7 replays skipped, §f%d§7 compactions§r\n",
+                executed.getOccupiedCount(), executed.getSlotCount(), executed.getReplaysSkipped(), executed.getCompactionCount()));
+        }
+        stats.append(String.format("§7Outbound (open sessions): §f%d§7 sent, §f%d§7 dropped§r\n", sent, dropped));
+        stats.append(String.format("§7Reaped dead connections: §f%d§r", server.getReapedSessionCount()));
+        long now = System.currentTimeMillis();
+        for (ClientSession session : server.getSessions()) {
+            long rtt = session.getRttMillis();
+            stats.append(String.format("\n§7#%d §f%s§7 RTT: §f%s§7, last seen §f%ds§7 ago§r", session.getId(),
+                session.getRemoteDescription(), rtt >= 0 ? rtt + "ms" : "n/a", (now - session.getLastSeen()) / 1000));
+        }
+        
+        source.sendFeedback(Component.literal(stats.toString()));
+    }
+    
     private static void showPort(FabricClientCommandSource source) {
         int currentPort = ModConfig.getInstance().getPort();
         source.sendFeedback(Component.literal(
@@ -154,29 +228,28 @@ public class DiscordCommand {
     private static void reconnect(FabricClientCommandSource source) {
         source.sendFeedback(Component.literal("§6Restarting WebSocket server...§r"));
         
-        DiscordWebSocketServer oldServer = DiscordWebSocketServer.getInstance();
-        if (oldServer != null && oldServer.isRunning()) {
-            oldServer.stopServer();
-        }
-        
-        int port = ModConfig.getInstance().getPort();
-        DiscordWebSocketServer.createInstance(port);
-        DiscordWebSocketServer newServer = DiscordWebSocketServer.getInstance();
-        
-        newServer.setMessageHandler(message -> ChatHandler.getInstance().handleDiscordMessage(message));
-        
-        new Thread(() -> {
+        ModExecutors.start("Discord-WebSocket-Server", () -> {
+            DiscordWebSocketServer oldServer = DiscordWebSocketServer.getInstance();
+            if (oldServer != null && oldServer.isRunning()) {
+                showDrainReport(source, oldServer.stopServer(true));
+            }
+            
+            int port = ModConfig.getInstance().getPort();
+            DiscordWebSocketServer.createInstance(port);
+            DiscordWebSocketServer newServer = DiscordWebSocketServer.getInstance();
+            newServer.setMessageHandler(message -> ChatHandler.getInstance().handleDiscordMessage(message));
+            
             try {
                 newServer.start();
-                source.sendFeedback(Component.literal(
+                sendFeedbackLater(source, Component.literal(
                     String.format("§aWebSocket server restarted on port §f%d§r", port)
                 ));
             } catch (Exception e) {
-                source.sendError(Component.literal(
+                sendErrorLater(source, Component.literal(
                     String.format("§cFailed to start server: %s§r", e.getMessage())
                 ));
             }
-        }, "Discord-WebSocket-Server").start();
+        });
     }
     
     private static void disconnect(FabricClientCommandSource source) {
@@ -188,17 +261,42 @@ public class DiscordCommand {
         }
         
         int clientCount = server.getConnectionCount();
-        server.stopServer();
-        
-        if (clientCount > 0) {
-            source.sendFeedback(Component.literal(
-                String.format("§aDisconnected from Discord. §f%d§a client(s) were disconnected.§r\n§7Use §f/discordchat reconnect§7 to reconnect.", clientCount)
-            ));
-        } else {
-            source.sendFeedback(Component.literal(
-                "§aWebSocket server stopped.§r\n§7Use §f/discordchat reconnect§7 to reconnect."
-            ));
+        ModExecutors.start("Discord-WebSocket-Shutdown", () -> {
+            showDrainReport(source, server.stopServer());
+            
+            if (clientCount > 0) {
+                sendFeedbackLater(source, Component.literal(
+                    String.format("§aDisconnected from Discord. §f%d§a client(s) were disconnected.§r\n§7Use §f/discordchat reconnect§7 to reconnect.", clientCount)
+                ));
+            } else {
+                sendFeedbackLater(source, Component.literal(
+                    "§aWebSocket server stopped.§r\n§7Use §f/discordchat reconnect§7 to reconnect."
+                ));
+            }
+        });
+    }
+    
+    private static void showDrainReport(FabricClientCommandSource source, DrainReport report) {
+        if (report.isClean()) {
+            sendFeedbackLater(source, Component.literal(String.format("§7Drained in §f%d§7 ms with nothing dropped.§r", report.elapsedMs)));
+            return;
         }
+        sendFeedbackLater(source, Component.literal(String.format(
+            "§eDrained in §f%d§e ms%s: §f%d§e inbound dropped, §f%d§e inbound rejected, §f%d§e outbound dropped, §f%d§e automation request(s) cancelled.§r",
+            report.elapsedMs, report.deadlineReached ? " (deadline reached)" : "", report.inboundDropped,
+            report.inboundRejected, report.outboundDropped, report.automationsCancelled)));
+    }
+    
+    /**
+     * For feedback from the worker threads that stop and start the server; chat may only be touched on the
+     * client thread.
+     */
+    private static void sendFeedbackLater(FabricClientCommandSource source, Component message) {
+        Minecraft.getInstance().execute(() -> source.sendFeedback(message));
+    }
+    
+    private static void sendErrorLater(FabricClientCommandSource source, Component message) {
+        Minecraft.getInstance().execute(() -> source.sendError(message));
     }
     
     private static void showTickTest(FabricClientCommandSource source) {
@@ -226,7 +324,9 @@ public class DiscordCommand {
             }
         }
         
-        String syncGroup = ChatHandler.getInstance().getLastSyncGroup();
+        DiscordWebSocketServer server = DiscordWebSocketServer.getInstance();
+        Set<String> syncGroups = server != null ? server.getSyncGroups() : Set.of();
+        String syncGroup = syncGroups.isEmpty() ? "none" : String.join(", ", syncGroups);
         long[] execInfo = ChatHandler.getInstance().getLastExecutionInfo();
         
         StringBuilder message = new StringBuilder();
@@ -234,7 +334,7 @@ public class DiscordCommand {
         message.append(String.format("§7Player: §f%s§r\n", playerName));
         message.append(String.format("§7Server Tick: §f%d§r\n", serverTick));
         message.append(String.format("§7Client Time: §f%d§r ms\n", clientTimeMs));
-        message.append(String.format("§7Sync Group: §f%s§r\n", syncGroup != null ? syncGroup : "none"));
+        message.append(String.format("§7Sync Group: §f%s§r\n", syncGroup));
         
         if (execInfo != null) {
             long targetTick = execInfo[0];
@@ -267,20 +367,7 @@ public class DiscordCommand {
         }
         
         source.sendFeedback(Component.literal(String.format("§6Running automation: §f%s§6...§r", automationName)));
-        server.runAutomation(automationName);
-        
-        new Thread(() -> {
-            try {
-                Thread.sleep(500);
-                String result = server.getAndClearAutomationResult();
-                if (result != null) {
-                    Minecraft client = Minecraft.getInstance();
-                    if (client != null && client.player != null) {
-                        client.execute(() -> client.player.displayClientMessage(Component.literal(result), false));
-                    }
-                }
-            } catch (InterruptedException ignored) {}
-        }, "Automation-Result-Wait").start();
+        server.runAutomation(automationName).thenAccept(DiscordCommand::showAutomationResults);
     }
     
     private static void stopAutomations(FabricClientCommandSource source) {
@@ -297,20 +384,40 @@ public class DiscordCommand {
         }
         
         source.sendFeedback(Component.literal("§6Stopping automations...§r"));
-        server.stopAutomations();
-        
-        new Thread(() -> {
-            try {
-                Thread.sleep(300);
-                String result = server.getAndClearAutomationResult();
-                if (result != null) {
-                    Minecraft client = Minecraft.getInstance();
-                    if (client != null && client.player != null) {
-                        client.execute(() -> client.player.displayClientMessage(Component.literal(result), false));
-                    }
-                }
-            } catch (InterruptedException ignored) {}
-        }, "Automation-Stop-Wait").start();
+        server.stopAutomations().thenAccept(DiscordCommand::showAutomationResults);
+    }
+    
+    private static void showAutomationResults(AutomationRpc.Result<InboundMessages.AutomationResult> result) {
+        StringBuilder sb = new StringBuilder();
+        for (InboundMessages.AutomationResult reply : result.replies) {
+            if (sb.length() > 0) sb.append("\n");
+            sb.append(reply.success ? "§a" : "§c").append(reply.message);
+        }
+        String outcome = describeOutcome(result);
+        if (outcome != null) {
+            if (sb.length() > 0) sb.append("\n");
+            sb.append(outcome);
+        }
+        if (sb.length() > 0) displayMessage(sb.toString());
+    }
+    
+    private static String describeOutcome(AutomationRpc.Result<?> result) {
+        return switch (result.outcome) {
+            case COMPLETED -> null;
+            case TIMED_OUT -> String.format("§7No response from §f%d§7 of §f%d§7 client(s).", result.getUnanswered(), result.asked);
+            case CANCELLED -> String.format("§7Cancelled by server shutdown before §f%d§7 of §f%d§7 client(s) answered.",
+                result.getUnanswered(), result.asked);
+            case NO_RECIPIENTS -> "§cNo connected Discord client is subscribed to automation results.";
+        };
+    }
+    
+    private static void displayMessage(String message) {
+        Minecraft client = Minecraft.getInstance();
+        if (client != null && client.player != null) {
+            client.execute(() -> {
+                if (client.player != null) client.player.displayClientMessage(Component.literal(message), false);
+            });
+        }
     }
     
     private static void listAutomations(FabricClientCommandSource source) {
@@ -326,29 +433,23 @@ public class DiscordCommand {
             return;
         }
         
-        server.requestAutomationsList();
-        
-        new Thread(() -> {
-            try {
-                Thread.sleep(300);
-                List<String> names = server.getCachedAutomationNames();
-                Minecraft client = Minecraft.getInstance();
-                if (client != null && client.player != null) {
-                    client.execute(() -> {
-                        if (names.isEmpty()) {
-                            client.player.displayClientMessage(Component.literal("§7No automations configured in Discord plugin."), false);
-                        } else {
-                            StringBuilder sb = new StringBuilder();
-                            sb.append("§6=== Available Automations ===§r\n");
-                            for (String name : names) {
-                                sb.append("§7• §f").append(name).append("§r\n");
-                            }
-                            sb.append("§7Use §f/discordchat run <name>§7 to run an automation.");
-                            client.player.displayClientMessage(Component.literal(sb.toString()), false);
-                        }
-                    });
-                }
-            } catch (InterruptedException ignored) {}
-        }, "Automations-List-Wait").start();
+        server.requestAutomationsList().thenAccept(result -> {
+            Set<String> names = new LinkedHashSet<>();
+            for (InboundMessages.AutomationsList reply : result.replies) names.addAll(reply.names);
+            
+            if (names.isEmpty()) {
+                String outcome = describeOutcome(result);
+                displayMessage(result.replies.isEmpty() && outcome != null ? outcome : "§7No automations configured in Discord plugin.");
+                return;
+            }
+            
+            StringBuilder sb = new StringBuilder();
+            sb.append("§6=== Available Automations ===§r\n");
+            for (String name : names) {
+                sb.append("§7• §f").append(name).append("§r\n");
+            }
+            sb.append("§7Use §f/discordchat run <name>§7 to run an automation.");
+            displayMessage(sb.toString());
+        });
     }
 }
@@ -0,0 +1,135 @@
+package discord.chat.mc.concurrent;
+
+import discord.chat.mc.DiscordChatIntegration;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Actor-style executor: tasks submitted under the same key run one at a time in submission order, each
+ * seeing the effects of the ones before it, while different keys run in parallel on the backing pool.
+ * A busy key yields its thread after {@value #MAX_TASKS_PER_TURN} tasks so it cannot starve the others.
+ * {@link #tryExecute} refuses work once {@code maxPending} tasks are queued or running across all keys.
+ */
+public class KeyedSerialExecutor {
+    private static final int MAX_TASKS_PER_TURN = 16;
+    
+    private final String name;
+    private final ExecutorService delegate;
+    private final Map<Object, Lane> lanes = new ConcurrentHashMap<>();
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean shutdown = false;
+    
+    public KeyedSerialExecutor(String name, ExecutorService delegate) {
+        this(name, delegate, Integer.MAX_VALUE);
+    }
+    
+    public KeyedSerialExecutor(String name, ExecutorService delegate, int maxPending) {
+        this.name = name;
+        this.delegate = delegate;
+        this.maxPending = Math.max(1, maxPending);
+    }
+    
+    public boolean tryExecute(Object key, Runnable task) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            return false;
+        }
+        enqueue(key, task);
+        return true;
+    }
+    
+    public void execute(Object key, Runnable task) {
+        pending.incrementAndGet();
+        enqueue(key, task);
+    }
+    
+    private void enqueue(Object key, Runnable task) {
+        if (shutdown) {
+            pending.decrementAndGet();
+            throw new RejectedExecutionException(name + " has been shut down");
+        }
+        
+        boolean[] start = new boolean[1];
+        Lane lane = lanes.compute(key, (k, existing) -> {
+            Lane target = existing != null ? existing : new Lane(k);
+            target.tasks.addLast(task);
+            if (!target.scheduled) {
+                target.scheduled = true;
+                start[0] = true;
+            }
+            return target;
+        });
+        if (start[0]) schedule(lane);
+    }
+    
+    private void schedule(Lane lane) {
+        try {
+            delegate.execute(() -> runTurn(lane));
+        } catch (RejectedExecutionException e) {
+            runTurn(lane);
+        }
+    }
+    
+    private void runTurn(Lane lane) {
+        for (int i = 0; i < MAX_TASKS_PER_TURN; i++) {
+            Runnable next = poll(lane);
+            if (next == null) return;
+            
+            try {
+                next.run();
+            } catch (Throwable t) {
+                DiscordChatIntegration.LOGGER.error("Task for key {} on {} failed: {}", lane.key, name, t.getMessage());
+            } finally {
+                pending.decrementAndGet();
+            }
+        }
+        schedule(lane);
+    }
+    
+    private Runnable poll(Lane lane) {
+        Runnable[] next = new Runnable[1];
+        lanes.compute(lane.key, (k, existing) -> {
+            if (existing != lane) return existing;
+            next[0] = lane.tasks.pollFirst();
+            if (next[0] != null) return lane;
+            lane.scheduled = false;
+            return null;
+        });
+        return next[0];
+    }
+    
+    public int getActiveKeyCount() { return lanes.size(); }
+    public int getPendingCount() { return pending.get(); }
+    
+    public void shutdown() {
+        shutdown = true;
+        delegate.shutdown();
+    }
+    
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+    
+    public void shutdownNow() {
+        shutdown = true;
+        lanes.clear();
+        delegate.shutdownNow();
+    }
+    
+    private static class Lane {
+        private final Object key;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled = false;
+        
+        private Lane(Object key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package discord.chat.mc.concurrent;
+
+import discord.chat.mc.DiscordChatIntegration;
+import discord.chat.mc.config.ModConfig;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single place where the mod creates background threads. In {@link ExecutionMode#VIRTUAL} every executor
+ * and one-off task runs on virtual threads, so sleeping or waiting never holds a platform thread.
+ */
+public final class ModExecutors {
+    public enum ExecutionMode { PLATFORM, VIRTUAL }
+    
+    private static volatile ExecutionMode mode;
+    
+    private ModExecutors() {}
+    
+    public static ExecutionMode getMode() {
+        ExecutionMode current = mode;
+        if (current == null) {
+            current = ModConfig.getInstance().getExecutionMode();
+            if (current == null) current = ExecutionMode.VIRTUAL;
+            mode = current;
+            DiscordChatIntegration.LOGGER.info("Using {} threads for background work", current.name().toLowerCase());
+        }
+        return current;
+    }
+    
+    public static boolean isVirtual() { return getMode() == ExecutionMode.VIRTUAL; }
+    
+    /**
+     * Unordered executor for independent tasks. Platform mode bounds it to {@code platformThreads};
+     * virtual mode starts a virtual thread per task.
+     */
+    public static ExecutorService newPool(String name, int platformThreads) {
+        if (isVirtual()) return Executors.newThreadPerTaskExecutor(threadFactory(name));
+        return Executors.newFixedThreadPool(platformThreads, threadFactory(name));
+    }
+    
+    /**
+     * Executor that keeps tasks sharing a key in submission order while running different keys in parallel.
+     */
+    public static KeyedSerialExecutor newKeyedExecutor(String name, int platformThreads) {
+        return new KeyedSerialExecutor(name, newPool(name, platformThreads));
+    }
+    
+    public static KeyedSerialExecutor newKeyedExecutor(String name, int platformThreads, int maxPending) {
+        return new KeyedSerialExecutor(name, newPool(name, platformThreads), maxPending);
+    }
+    
+    public static ExecutorService newSerialExecutor(String name) {
+        return Executors.newSingleThreadExecutor(threadFactory(name));
+    }
+    
+    public static ScheduledExecutorService newScheduler(String name) {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, threadFactory(name));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+    
+    public static Thread start(String name, Runnable task) {
+        if (isVirtual()) return Thread.ofVirtual().name(name).start(task);
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+    
+    public static ThreadFactory threadFactory(String name) {
+        if (isVirtual()) return Thread.ofVirtual().name(name + "-", 0).factory();
+        
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            int index = counter.getAndIncrement();
+            Thread t = new Thread(r, index == 0 ? name : name + "-" + index);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
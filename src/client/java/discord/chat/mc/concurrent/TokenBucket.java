@@ -0,0 +1,29 @@
+package discord.chat.mc.concurrent;
+
+/**
+ * Token bucket refilled continuously at {@code ratePerSecond} up to {@code burst} tokens.
+ */
+public class TokenBucket {
+    private final double ratePerSecond;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+    
+    public TokenBucket(double ratePerSecond, double burst) {
+        this.ratePerSecond = Math.max(0, ratePerSecond);
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+    
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerSecond / 1_000_000_000.0);
+        lastRefill = now;
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+    
+    public double getRatePerSecond() { return ratePerSecond; }
+}
@@ -3,18 +3,55 @@ package discord.chat.mc.config;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import discord.chat.mc.DiscordChatIntegration;
+import discord.chat.mc.concurrent.ModExecutors;
+import discord.chat.mc.websocket.ConnectionOutbox;
 import net.fabricmc.loader.api.FabricLoader;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ModConfig {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private static final String CONFIG_FILE = "discord-chat-integration.json";
+    private static final String LOCAL_SOCKET_DIR = "discord-chat-integration-ipc";
+    private static final String LOCAL_SOCKET_FILE = "discord-chat-integration.sock";
+    private static final String EXECUTED_LOG_FILE = "discord-chat-integration-executed.bin";
     private static ModConfig instance;
     
     private int port = 25580;
+    private int outboundQueueCapacity = 256;
+    private ConnectionOutbox.OverflowPolicy outboundOverflowPolicy = ConnectionOutbox.OverflowPolicy.DROP_OLDEST;
+    private boolean compressionEnabled = true;
+    private int compressionThreshold = 256;
+    private boolean compressionContextTakeover = true;
+    private int chatBatchWindowMs = 50;
+    private int chatBatchMaxMessages = 64;
+    private double tickAnchorDriftTicks = 2.0;
+    private double tickAnchorRateTolerance = 0.02;
+    private int maxConnections = 8;
+    private double inboundRatePerSecond = 50;
+    private double inboundBurst = 100;
+    private Map<String, Double> inboundTypeRates = defaultTypeRates();
+    private int inboundQueueCapacity = 512;
+    private int heartbeatIntervalSeconds = 15;
+    private int idleTimeoutSeconds = 45;
+    private int automationTimeoutMs = 3000;
+    private int automationCatalogTtlSeconds = 60;
+    private boolean localSocketEnabled = false;
+    private String localSocketPath = "";
+    private int shutdownDrainMs = 2000;
+    private int restartBufferSeconds = 30;
+    private int dedupCapacity = 4096;
+    private int dedupWindowSeconds = 900;
+    private boolean executedLogEnabled = false;
+    private int executedLogSlots = 16384;
+    private int executedLogRetentionHours = 24;
+    private List<String> chatFormats = List.of("<{sender}> {message}", "[{rank}] {sender} » {message}");
+    private ModExecutors.ExecutionMode executionMode = ModExecutors.ExecutionMode.VIRTUAL;
     private transient Path configPath;
     
     public static ModConfig getInstance() {
@@ -22,6 +59,19 @@ public class ModConfig {
         return instance;
     }
     
+    // discord_message is deliberately absent: the plugin can fire dozens of automation actions a second, so
+    // chat and commands are only bounded by the per-connection inboundRatePerSecond.
+    private static Map<String, Double> defaultTypeRates() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        rates.put("client_hello", 1.0);
+        rates.put("subscribe", 5.0);
+        rates.put("unsubscribe", 5.0);
+        rates.put("request_player_info", 5.0);
+        rates.put("get_tick", 10.0);
+        rates.put("ping", 5.0);
+        return rates;
+    }
+    
     private static Path getConfigPath() {
         return FabricLoader.getInstance().getConfigDir().resolve(CONFIG_FILE);
     }
@@ -57,5 +107,43 @@ public class ModConfig {
     
     public int getPort() { return port; }
     public void setPort(int port) { this.port = port; }
+    public int getOutboundQueueCapacity() { return outboundQueueCapacity; }
+    public ConnectionOutbox.OverflowPolicy getOutboundOverflowPolicy() { return outboundOverflowPolicy; }
+    public boolean isCompressionEnabled() { return compressionEnabled; }
+    public int getCompressionThreshold() { return compressionThreshold; }
+    public boolean isCompressionContextTakeover() { return compressionContextTakeover; }
+    public int getChatBatchWindowMs() { return chatBatchWindowMs; }
+    public int getChatBatchMaxMessages() { return chatBatchMaxMessages; }
+    public double getTickAnchorDriftTicks() { return tickAnchorDriftTicks; }
+    public double getTickAnchorRateTolerance() { return tickAnchorRateTolerance; }
+    public int getMaxConnections() { return maxConnections; }
+    public double getInboundRatePerSecond() { return inboundRatePerSecond; }
+    public double getInboundBurst() { return inboundBurst; }
+    public Map<String, Double> getInboundTypeRates() { return inboundTypeRates != null ? inboundTypeRates : Map.of(); }
+    public int getInboundQueueCapacity() { return inboundQueueCapacity; }
+    public int getHeartbeatIntervalSeconds() { return heartbeatIntervalSeconds; }
+    public int getIdleTimeoutSeconds() { return idleTimeoutSeconds; }
+    public int getAutomationTimeoutMs() { return automationTimeoutMs; }
+    public int getAutomationCatalogTtlSeconds() { return automationCatalogTtlSeconds; }
+    public boolean isLocalSocketEnabled() { return localSocketEnabled; }
+    public int getShutdownDrainMs() { return shutdownDrainMs; }
+    public int getRestartBufferSeconds() { return restartBufferSeconds; }
+    public int getDedupCapacity() { return dedupCapacity; }
+    public int getDedupWindowSeconds() { return dedupWindowSeconds; }
+    public boolean isExecutedLogEnabled() { return executedLogEnabled; }
+    public int getExecutedLogSlots() { return executedLogSlots; }
+    public int getExecutedLogRetentionHours() { return executedLogRetentionHours; }
+    public List<String> getChatFormats() { return chatFormats != null ? chatFormats : List.of(); }
+    
+    public Path getLocalSocketPath() {
+        if (localSocketPath != null && !localSocketPath.isBlank()) return Path.of(localSocketPath);
+        return FabricLoader.getInstance().getConfigDir().resolve(LOCAL_SOCKET_DIR).resolve(LOCAL_SOCKET_FILE);
+    }
+    
+    public Path getExecutedLogPath() {
+        return FabricLoader.getInstance().getConfigDir().resolve(EXECUTED_LOG_FILE);
+    }
+    
+    public ModExecutors.ExecutionMode getExecutionMode() { return executionMode; }
 }
 
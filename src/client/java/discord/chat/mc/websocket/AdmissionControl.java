@@ -0,0 +1,92 @@
+package discord.chat.mc.websocket;
+
+import discord.chat.mc.concurrent.TokenBucket;
+import discord.chat.mc.config.ModConfig;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inbound limits for one server: a cap on concurrent sessions, token buckets per session and per message
+ * type, and counters for everything that was let in or turned away.
+ */
+public class AdmissionControl {
+    public static final String RATE_LIMITED = "rate_limited";
+    public static final String QUEUE_FULL = "queue_full";
+    public static final String SHUTTING_DOWN = "shutting_down";
+    
+    private static final long REJECTION_NOTICE_INTERVAL_MS = 1000;
+    
+    private final int maxConnections;
+    private final double ratePerSecond;
+    private final double burst;
+    private final Map<String, Double> typeRates;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong sessionRateLimited = new AtomicLong();
+    private final AtomicLong typeRateLimited = new AtomicLong();
+    private final AtomicLong queueRejected = new AtomicLong();
+    private final AtomicLong connectionsRejected = new AtomicLong();
+    
+    public AdmissionControl(ModConfig config) {
+        this.maxConnections = config.getMaxConnections();
+        this.ratePerSecond = config.getInboundRatePerSecond();
+        this.burst = config.getInboundBurst();
+        this.typeRates = Map.copyOf(config.getInboundTypeRates());
+    }
+    
+    public boolean admitConnection(int currentConnections) {
+        if (maxConnections <= 0 || currentConnections < maxConnections) return true;
+        connectionsRejected.incrementAndGet();
+        return false;
+    }
+    
+    public SessionLimits newSessionLimits() {
+        return new SessionLimits(ratePerSecond > 0 ? new TokenBucket(ratePerSecond, burst) : null);
+    }
+    
+    public boolean tryAcquireSession(ClientSession session) {
+        TokenBucket bucket = session.getLimits().bucket;
+        if (bucket == null || bucket.tryAcquire()) return true;
+        sessionRateLimited.incrementAndGet();
+        return false;
+    }
+    
+    public boolean tryAcquireType(ClientSession session, String type) {
+        Double rate = typeRates.get(type);
+        if (rate == null || rate <= 0) return true;
+        
+        TokenBucket bucket = session.getLimits().typeBuckets.computeIfAbsent(type,
+            key -> new TokenBucket(rate, Math.max(1, rate * 2)));
+        if (bucket.tryAcquire()) return true;
+        typeRateLimited.incrementAndGet();
+        return false;
+    }
+    
+    public void recordAccepted() { accepted.incrementAndGet(); }
+    public void recordQueueRejected() { queueRejected.incrementAndGet(); }
+    
+    public int getMaxConnections() { return maxConnections; }
+    public long getAcceptedCount() { return accepted.get(); }
+    public long getSessionRateLimitedCount() { return sessionRateLimited.get(); }
+    public long getTypeRateLimitedCount() { return typeRateLimited.get(); }
+    public long getQueueRejectedCount() { return queueRejected.get(); }
+    public long getConnectionsRejectedCount() { return connectionsRejected.get(); }
+    
+    public static class SessionLimits {
+        private final TokenBucket bucket;
+        private final Map<String, TokenBucket> typeBuckets = new ConcurrentHashMap<>();
+        private volatile long lastRejectionNotice = 0;
+        
+        private SessionLimits(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+        
+        public boolean shouldNotifyRejection() {
+            long now = System.currentTimeMillis();
+            if (now - lastRejectionNotice < REJECTION_NOTICE_INTERVAL_MS) return false;
+            lastRejectionNotice = now;
+            return true;
+        }
+    }
+}
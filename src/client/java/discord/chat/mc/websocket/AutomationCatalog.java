@@ -0,0 +1,129 @@
+package discord.chat.mc.websocket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Automation names reported by attached clients, published as an immutable snapshot so readers never see a
+ * half-updated list. Snapshots carry a sorted lower-case index for prefix lookups and fall back to
+ * substring and subsequence matching for suggestions. Lookups never touch the network.
+ */
+public class AutomationCatalog {
+    private final Map<Long, List<String>> namesBySession = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile boolean invalidated = true;
+    
+    public void update(long sessionId, List<String> names) {
+        namesBySession.put(sessionId, List.copyOf(names));
+        rebuild();
+    }
+    
+    public void remove(long sessionId) {
+        if (namesBySession.remove(sessionId) != null) rebuild();
+    }
+    
+    public void invalidate() {
+        invalidated = true;
+    }
+    
+    private synchronized void rebuild() {
+        Set<String> union = new LinkedHashSet<>();
+        for (List<String> names : namesBySession.values()) union.addAll(names);
+        snapshot = new Snapshot(List.copyOf(union), System.currentTimeMillis());
+        invalidated = false;
+    }
+    
+    public boolean isStale(long ttlMs) {
+        return invalidated || System.currentTimeMillis() - snapshot.builtAt > ttlMs;
+    }
+    
+    public List<String> getNames() { return snapshot.names; }
+    
+    public List<String> suggest(String input, int limit) {
+        return snapshot.suggest(input != null ? input.toLowerCase(Locale.ROOT) : "", limit);
+    }
+    
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(List.of(), 0);
+        
+        private final List<String> names;
+        private final String[] sortedLower;
+        private final String[] sortedNames;
+        private final long builtAt;
+        
+        private Snapshot(List<String> names, long builtAt) {
+            this.names = names;
+            this.builtAt = builtAt;
+            
+            Integer[] order = new Integer[names.size()];
+            String[] lower = new String[names.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+                lower[i] = names.get(i).toLowerCase(Locale.ROOT);
+            }
+            Arrays.sort(order, (a, b) -> lower[a].compareTo(lower[b]));
+            
+            this.sortedLower = new String[order.length];
+            this.sortedNames = new String[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedLower[i] = lower[order[i]];
+                sortedNames[i] = names.get(order[i]);
+            }
+        }
+        
+        private List<String> suggest(String query, int limit) {
+            List<String> results = new ArrayList<>();
+            if (query.isEmpty()) {
+                for (int i = 0; i < sortedNames.length && results.size() < limit; i++) results.add(sortedNames[i]);
+                return results;
+            }
+            
+            int start = Arrays.binarySearch(sortedLower, query);
+            if (start < 0) start = -start - 1;
+            boolean[] taken = new boolean[sortedNames.length];
+            for (int i = start; i < sortedLower.length && sortedLower[i].startsWith(query); i++) {
+                if (results.size() >= limit) return results;
+                results.add(sortedNames[i]);
+                taken[i] = true;
+            }
+            
+            for (int i = 0; i < sortedLower.length && results.size() < limit; i++) {
+                if (!taken[i] && sortedLower[i].contains(query)) {
+                    results.add(sortedNames[i]);
+                    taken[i] = true;
+                }
+            }
+            
+            List<int[]> fuzzy = new ArrayList<>();
+            for (int i = 0; i < sortedLower.length; i++) {
+                if (taken[i]) continue;
+                int score = subsequenceGaps(sortedLower[i], query);
+                if (score >= 0) fuzzy.add(new int[] { score, i });
+            }
+            fuzzy.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+            for (int[] match : fuzzy) {
+                if (results.size() >= limit) break;
+                results.add(sortedNames[match[1]]);
+            }
+            return results;
+        }
+        
+        private static int subsequenceGaps(String candidate, String query) {
+            int gaps = 0;
+            int position = 0;
+            for (int i = 0; i < query.length(); i++) {
+                int found = candidate.indexOf(query.charAt(i), position);
+                if (found < 0) return -1;
+                if (i > 0) gaps += found - position;
+                position = found + 1;
+            }
+            return gaps;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package discord.chat.mc.websocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Correlates automation requests with their replies. Each request carries a {@code requestId} and completes
+ * as soon as every client it was sent to has answered, or with the replies gathered so far when it times out.
+ * Replies from clients that do not echo the id are matched to the oldest request still waiting on them.
+ * The {@link Outcome} of a result tells a full answer apart from a timeout, a cancellation on shutdown and a
+ * request that had nobody to go to.
+ */
+public class AutomationRpc {
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<String, PendingRequest<?>> pending = new ConcurrentHashMap<>();
+    
+    public AutomationRpc(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+    
+    public <T> PendingRequest<T> begin(String replyType, ClientSession[] targets, long timeoutMs) {
+        PendingRequest<T> request = new PendingRequest<>(nextId.getAndIncrement(), replyType, targets);
+        if (targets.length == 0) {
+            request.finish(Outcome.NO_RECIPIENTS);
+            return request;
+        }
+        
+        pending.put(request.id, request);
+        request.future.whenComplete((result, error) -> pending.remove(request.id));
+        try {
+            request.timeout = scheduler.schedule(() -> request.finish(Outcome.TIMED_OUT), timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            request.finish(Outcome.CANCELLED);
+        }
+        return request;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <T> boolean complete(ClientSession session, String replyType, String requestId, T reply) {
+        PendingRequest<?> request = requestId != null ? pending.get(requestId) : oldestAwaiting(session, replyType);
+        if (request == null || !request.replyType.equals(replyType)) return false;
+        return ((PendingRequest<T>) request).accept(session.getId(), reply);
+    }
+    
+    private PendingRequest<?> oldestAwaiting(ClientSession session, String replyType) {
+        PendingRequest<?> oldest = null;
+        for (PendingRequest<?> request : pending.values()) {
+            if (!request.replyType.equals(replyType) || !request.awaiting.contains(session.getId())) continue;
+            if (oldest == null || request.sequence < oldest.sequence) oldest = request;
+        }
+        return oldest;
+    }
+    
+    public void sessionClosed(ClientSession session) {
+        for (PendingRequest<?> request : pending.values()) request.forget(session.getId());
+    }
+    
+    public void cancelAll() {
+        for (PendingRequest<?> request : pending.values()) request.finish(Outcome.CANCELLED);
+    }
+    
+    public int getPendingCount() { return pending.size(); }
+    
+    public static class PendingRequest<T> {
+        private final long sequence;
+        private final String id;
+        private final String replyType;
+        private final int asked;
+        private final Set<Long> awaiting = ConcurrentHashMap.newKeySet();
+        private final List<T> replies = new ArrayList<>();
+        private final CompletableFuture<Result<T>> future = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timeout;
+        
+        private PendingRequest(long sequence, String replyType, ClientSession[] targets) {
+            this.sequence = sequence;
+            this.id = Long.toString(sequence);
+            this.replyType = replyType;
+            this.asked = targets.length;
+            for (ClientSession target : targets) awaiting.add(target.getId());
+        }
+        
+        private synchronized boolean accept(long sessionId, T reply) {
+            if (future.isDone() || !awaiting.remove(sessionId)) return false;
+            replies.add(reply);
+            if (awaiting.isEmpty()) finish(Outcome.COMPLETED);
+            return true;
+        }
+        
+        private synchronized void forget(long sessionId) {
+            if (awaiting.remove(sessionId) && awaiting.isEmpty()) finish(Outcome.COMPLETED);
+        }
+        
+        private synchronized void finish(Outcome outcome) {
+            Outcome reported = outcome != Outcome.NO_RECIPIENTS && awaiting.isEmpty() ? Outcome.COMPLETED : outcome;
+            if (!future.complete(new Result<>(List.copyOf(replies), asked, reported))) return;
+            ScheduledFuture<?> pendingTimeout = timeout;
+            if (pendingTimeout != null) pendingTimeout.cancel(false);
+        }
+        
+        public String getId() { return id; }
+        public CompletableFuture<Result<T>> getFuture() { return future; }
+    }
+    
+    public enum Outcome {
+        /** Every client asked has answered, or disconnected. */
+        COMPLETED,
+        /** The timeout passed before every client answered. */
+        TIMED_OUT,
+        /** The server shut down before every client answered. */
+        CANCELLED,
+        /** No connected client was subscribed to automation results, so nothing was sent. */
+        NO_RECIPIENTS
+    }
+    
+    public static class Result<T> {
+        public final List<T> replies;
+        public final int asked;
+        public final Outcome outcome;
+        
+        public Result(List<T> replies, int asked, Outcome outcome) {
+            this.replies = replies;
+            this.asked = asked;
+            this.outcome = outcome;
+        }
+        
+        public int getUnanswered() { return asked - replies.size(); }
+    }
+}
@@ -0,0 +1,226 @@
+package discord.chat.mc.websocket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compact binary encoding offered to clients that request the {@value #SUBPROTOCOL} WebSocket subprotocol.
+ * <p>
+ * A frame is one type tag byte followed by fields. Each field starts with a tag byte of
+ * {@code (fieldId << 2) | kind}; strings are an unsigned varint length plus UTF-8 bytes, integers are zigzag varints,
+ * booleans are one byte and string lists are a varint count followed by strings.
+ */
+public final class BinaryCodec {
+    public static final String SUBPROTOCOL = "dci.binary.v1";
+    
+    static final int KIND_STRING = 0;
+    static final int KIND_VARINT = 1;
+    static final int KIND_BOOLEAN = 2;
+    static final int KIND_STRING_LIST = 3;
+    
+    private static final String[] TYPES = new String[256];
+    private static final Map<String, Integer> TYPE_TAGS = new HashMap<>();
+    private static final String[] FIELDS = new String[64];
+    private static final Map<String, Integer> FIELD_IDS = new HashMap<>();
+    private static final AtomicInteger binarySessions = new AtomicInteger();
+    
+    static {
+        type(1, "connection_status");
+        type(2, "tick_update");
+        type(3, "player_info");
+        type(4, "minecraft_message");
+        type(5, "pong");
+        type(6, "get_automations");
+        type(7, "run_automation");
+        type(8, "stop_automation");
+        type(9, "minecraft_batch");
+        type(10, "tick_anchor");
+        type(11, "subscriptions");
+        type(12, "error");
+        type(13, "server_restarting");
+        type(32, "discord_message");
+        type(33, "set_sync_group");
+        type(34, "get_tick");
+        type(35, "ping");
+        type(36, "request_player_info");
+        type(37, "automations_list");
+        type(38, "automation_result");
+        type(39, "client_hello");
+        type(40, "subscribe");
+        type(41, "unsubscribe");
+        type(42, "automations_changed");
+        
+        field(1, "author");
+        field(2, "content");
+        field(3, "messageId");
+        field(4, "tickSync");
+        field(5, "syncGroup");
+        field(6, "targetTick");
+        field(7, "status");
+        field(8, "message");
+        field(9, "playerName");
+        field(10, "tick");
+        field(11, "name");
+        field(12, "inWorld");
+        field(13, "inMultiplayer");
+        field(14, "serverTick");
+        field(15, "success");
+        field(16, "automations");
+        field(17, "authors");
+        field(18, "contents");
+        field(19, "capabilities");
+        field(20, "nanos");
+        field(21, "tickRateMillis");
+        field(22, "topics");
+        field(23, "filter");
+        field(24, "code");
+        field(25, "rejectedType");
+        field(26, "timestamp");
+        field(27, "requestId");
+        field(28, "retryAfterMs");
+    }
+    
+    private BinaryCodec() {}
+    
+    private static void type(int tag, String name) {
+        TYPES[tag] = name;
+        TYPE_TAGS.put(name, tag);
+    }
+    
+    private static void field(int id, String name) {
+        FIELDS[id] = name;
+        FIELD_IDS.put(name, id);
+    }
+    
+    static int typeTag(String type) {
+        Integer tag = TYPE_TAGS.get(type);
+        return tag != null ? tag : -1;
+    }
+    
+    static int fieldId(String name) {
+        Integer id = FIELD_IDS.get(name);
+        return id != null ? id : -1;
+    }
+    
+    public static String typeName(int tag) {
+        return tag >= 0 && tag < TYPES.length ? TYPES[tag] : null;
+    }
+    
+    public static String peekType(ByteBuffer message) {
+        return message.hasRemaining() ? typeName(message.get(message.position()) & 0xFF) : null;
+    }
+    
+    static void sessionOpened() { binarySessions.incrementAndGet(); }
+    static void sessionClosed() { binarySessions.decrementAndGet(); }
+    static boolean hasBinarySessions() { return binarySessions.get() > 0; }
+    
+    /**
+     * Sequential reader over one binary frame. {@link #nextField()} returns the name of the next known field
+     * and transparently skips fields this build does not know about.
+     */
+    public static final class Reader {
+        private final ByteBuffer buffer;
+        private int kind;
+        
+        public Reader(ByteBuffer buffer) {
+            this.buffer = buffer.slice();
+            this.buffer.get();
+        }
+        
+        public String nextField() {
+            while (buffer.hasRemaining()) {
+                int tag = buffer.get() & 0xFF;
+                kind = tag & 0x3;
+                String name = FIELDS[tag >>> 2];
+                if (name != null) return name;
+                skip();
+            }
+            return null;
+        }
+        
+        public String readString() {
+            if (kind != KIND_STRING) {
+                skip();
+                return null;
+            }
+            return string();
+        }
+        
+        public long readLong(long fallback) {
+            if (kind != KIND_VARINT) {
+                skip();
+                return fallback;
+            }
+            long raw = varLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+        
+        public boolean readBoolean() {
+            if (kind != KIND_BOOLEAN) {
+                skip();
+                return false;
+            }
+            return buffer.get() != 0;
+        }
+        
+        public List<String> readStringList() {
+            if (kind != KIND_STRING_LIST) {
+                skip();
+                return null;
+            }
+            int count = (int) varLong();
+            List<String> values = new ArrayList<>(Math.min(count, 256));
+            for (int i = 0; i < count; i++) {
+                String value = string();
+                if (value != null) values.add(value);
+            }
+            return values;
+        }
+        
+        public void skip() {
+            switch (kind) {
+                case KIND_STRING -> buffer.position(buffer.position() + (int) varLong());
+                case KIND_VARINT -> varLong();
+                case KIND_BOOLEAN -> buffer.get();
+                default -> {
+                    int count = (int) varLong();
+                    for (int i = 0; i < count; i++) buffer.position(buffer.position() + (int) varLong());
+                }
+            }
+        }
+        
+        private String string() {
+            int length = (int) varLong();
+            if (length < 0 || length > buffer.remaining()) throw new IllegalArgumentException("Invalid string length: " + length);
+            if (length > InboundMessages.MAX_FIELD_LENGTH) {
+                buffer.position(buffer.position() + length);
+                return null;
+            }
+            String value;
+            if (buffer.hasArray()) {
+                value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            } else {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return value;
+        }
+        
+        private long varLong() {
+            long raw = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                raw |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return raw;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package discord.chat.mc.websocket;
+
+import java.io.Reader;
+
+/**
+ * Feeds an inbound JSON frame to a {@link com.google.gson.stream.JsonReader}, replacing every string literal
+ * longer than the limit with {@link InboundMessages#OVERSIZED} before the reader sees it. An oversized value
+ * is therefore never copied out of the frame: the decoder receives a one-character placeholder and treats the
+ * field as absent, and an oversized field name simply matches nothing and is skipped.
+ */
+final class BoundedJsonSource extends Reader {
+    private static final String OVERSIZED_LITERAL = "\"\\u0000\"";
+    
+    private final String source;
+    private final int maxLiteralLength;
+    private int position = 0;
+    private int copyEnd = 0;
+    private String pending = null;
+    private int pendingPosition = 0;
+    
+    BoundedJsonSource(String source, int maxLiteralLength) {
+        this.source = source;
+        this.maxLiteralLength = maxLiteralLength;
+    }
+    
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        int written = 0;
+        while (written < length) {
+            if (pending != null) {
+                buffer[offset + written++] = pending.charAt(pendingPosition++);
+                if (pendingPosition == pending.length()) pending = null;
+            } else if (position < copyEnd) {
+                int count = Math.min(length - written, copyEnd - position);
+                source.getChars(position, position + count, buffer, offset + written);
+                position += count;
+                written += count;
+            } else if (position < source.length()) {
+                if (source.charAt(position) == '"') {
+                    startLiteral();
+                } else {
+                    buffer[offset + written++] = source.charAt(position++);
+                }
+            } else {
+                break;
+            }
+        }
+        return written == 0 && length > 0 ? -1 : written;
+    }
+    
+    private void startLiteral() {
+        int end = position + 1;
+        while (end < source.length() && source.charAt(end) != '"') {
+            end += source.charAt(end) == '\\' ? 2 : 1;
+        }
+        if (end >= source.length() || end - position - 1 <= maxLiteralLength) {
+            // Unterminated literals are passed through so the reader reports the syntax error itself.
+            copyEnd = Math.min(end + 1, source.length());
+            return;
+        }
+        pending = OVERSIZED_LITERAL;
+        pendingPosition = 0;
+        position = end + 1;
+    }
+    
+    @Override
+    public void close() {}
+}
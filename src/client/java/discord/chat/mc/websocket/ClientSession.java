@@ -0,0 +1,143 @@
+package discord.chat.mc.websocket;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Everything the server knows about one attached client, whichever transport it came in on. WebSocket
+ * sessions are stored as the socket's attachment so handlers reach them without a lookup.
+ */
+public class ClientSession {
+    private final DiscordWebSocketServer server;
+    private final long id;
+    private final SessionTransport transport;
+    private final ConnectionOutbox outbox;
+    private final boolean binaryProtocol;
+    private final AdmissionControl.SessionLimits limits;
+    private final long connectedAt = System.currentTimeMillis();
+    private final Set<String> capabilities = ConcurrentHashMap.newKeySet();
+    private volatile Set<Topic> topics = Collections.unmodifiableSet(EnumSet.allOf(Topic.class));
+    private volatile Map<Topic, ContentFilter> filters = Map.of();
+    private boolean explicitSubscriptions = false;
+    private final AtomicLong messagesReceived = new AtomicLong();
+    private volatile String syncGroup = "none";
+    private volatile long lastSeen = connectedAt;
+    private volatile long pingSentAt = 0;
+    private volatile long rttMillis = -1;
+    private volatile boolean reaped = false;
+    
+    public ClientSession(DiscordWebSocketServer server, long id, SessionTransport transport, ConnectionOutbox outbox, boolean binaryProtocol,
+                         AdmissionControl.SessionLimits limits) {
+        this.server = server;
+        this.id = id;
+        this.transport = transport;
+        this.outbox = outbox;
+        this.binaryProtocol = binaryProtocol;
+        this.limits = limits;
+    }
+    
+    public boolean send(OutboundFrame frame) {
+        return transport.isOpen() && outbox.offer(frame);
+    }
+    
+    public void onMessageReceived() {
+        messagesReceived.incrementAndGet();
+        lastSeen = System.currentTimeMillis();
+    }
+    
+    public void onPingSent() {
+        if (pingSentAt == 0) pingSentAt = System.nanoTime();
+    }
+    
+    public void onPong() {
+        lastSeen = System.currentTimeMillis();
+        long sentAt = pingSentAt;
+        if (sentAt != 0) {
+            pingSentAt = 0;
+            recordRtt((System.nanoTime() - sentAt) / 1_000_000);
+        }
+    }
+    
+    public void recordRtt(long sample) {
+        if (sample < 0) return;
+        long current = rttMillis;
+        rttMillis = current < 0 ? sample : (current * 7 + sample) / 8;
+    }
+    
+    public void close(int code, String reason) {
+        transport.close(code, reason);
+    }
+    
+    public void markReaped() { reaped = true; }
+    
+    public boolean isOpen() { return transport.isOpen(); }
+    public DiscordWebSocketServer getServer() { return server; }
+    public long getId() { return id; }
+    public SessionTransport getTransport() { return transport; }
+    public ConnectionOutbox getOutbox() { return outbox; }
+    public boolean isBinaryProtocol() { return binaryProtocol; }
+    public AdmissionControl.SessionLimits getLimits() { return limits; }
+    public String getRemoteDescription() { return transport.getRemoteDescription(); }
+    public long getConnectedAt() { return connectedAt; }
+    public long getLastSeen() { return lastSeen; }
+    public long getRttMillis() { return rttMillis; }
+    public long getMessagesReceived() { return messagesReceived.get(); }
+    public boolean isReaped() { return reaped; }
+    
+    public String getSyncGroup() { return syncGroup; }
+    
+    public void setSyncGroup(String syncGroup) {
+        if (syncGroup != null && !syncGroup.isEmpty()) this.syncGroup = syncGroup;
+    }
+    
+    public boolean hasCapability(String capability) { return capabilities.contains(capability); }
+    public void addCapability(String capability) { capabilities.add(capability); }
+    public Set<String> getCapabilities() { return Collections.unmodifiableSet(capabilities); }
+    
+    public boolean isSubscribed(Topic topic) { return topics.contains(topic); }
+    public Set<Topic> getTopics() { return topics; }
+    public boolean hasFilters() { return !filters.isEmpty(); }
+    
+    public boolean accepts(Topic topic, String content) {
+        if (!topics.contains(topic)) return false;
+        ContentFilter filter = filters.get(topic);
+        return filter == null || filter.matches(content);
+    }
+    
+    public synchronized void subscribe(Collection<Topic> added, ContentFilter filter) {
+        EnumSet<Topic> next = explicitSubscriptions ? EnumSet.copyOf(topics) : EnumSet.noneOf(Topic.class);
+        next.addAll(added);
+        explicitSubscriptions = true;
+        
+        Map<Topic, ContentFilter> nextFilters = filters.isEmpty() ? new EnumMap<>(Topic.class) : new EnumMap<>(filters);
+        for (Topic topic : added) {
+            if (filter != null) {
+                nextFilters.put(topic, filter);
+            } else {
+                nextFilters.remove(topic);
+            }
+        }
+        applySubscriptions(next, nextFilters);
+    }
+    
+    public synchronized void unsubscribe(Collection<Topic> removed) {
+        EnumSet<Topic> next = EnumSet.copyOf(topics);
+        next.removeAll(removed);
+        explicitSubscriptions = true;
+        
+        Map<Topic, ContentFilter> nextFilters = filters.isEmpty() ? new EnumMap<>(Topic.class) : new EnumMap<>(filters);
+        nextFilters.keySet().removeAll(removed);
+        applySubscriptions(next, nextFilters);
+    }
+    
+    private void applySubscriptions(EnumSet<Topic> next, Map<Topic, ContentFilter> nextFilters) {
+        topics = Collections.unmodifiableSet(next);
+        filters = nextFilters.isEmpty() ? Map.of() : Collections.unmodifiableMap(nextFilters);
+    }
+}
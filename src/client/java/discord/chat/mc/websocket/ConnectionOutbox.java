@@ -0,0 +1,160 @@
+package discord.chat.mc.websocket;
+
+import discord.chat.mc.DiscordChatIntegration;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded outbound queue for a single connection. Producers only enqueue; frames are handed to the
+ * socket by a drain task on the shared writer, which backs off while the socket still has unsent data.
+ */
+public class ConnectionOutbox {
+    public enum OverflowPolicy { DROP_OLDEST, DROP_NEWEST, DISCONNECT }
+    
+    private static final int MAX_FRAMES_PER_DRAIN = 32;
+    private static final long BACKOFF_MS = 5;
+    
+    private final SessionTransport transport;
+    private final ScheduledExecutorService writer;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final boolean binary;
+    private final ArrayDeque<OutboundFrame> queue = new ArrayDeque<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private boolean closed = false;
+    
+    public ConnectionOutbox(SessionTransport transport, ScheduledExecutorService writer, int capacity, OverflowPolicy policy, boolean binary) {
+        this.transport = transport;
+        this.binary = binary;
+        this.writer = writer;
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy != null ? policy : OverflowPolicy.DROP_OLDEST;
+    }
+    
+    public boolean offer(OutboundFrame frame) {
+        boolean overflowed = false;
+        synchronized (queue) {
+            if (closed) return false;
+            
+            if (queue.size() >= capacity) {
+                switch (policy) {
+                    case DROP_OLDEST -> {
+                        queue.pollFirst();
+                        dropped.incrementAndGet();
+                    }
+                    case DROP_NEWEST -> {
+                        dropped.incrementAndGet();
+                        return false;
+                    }
+                    case DISCONNECT -> {
+                        dropped.addAndGet(queue.size() + 1);
+                        queue.clear();
+                        closed = true;
+                        DiscordChatIntegration.LOGGER.warn("Disconnecting slow Discord client {} ({} frames queued)",
+                            transport.getRemoteDescription(), capacity);
+                        overflowed = true;
+                    }
+                }
+            }
+            if (!overflowed) queue.addLast(frame);
+        }
+        if (overflowed) {
+            closeForOverflow();
+            return false;
+        }
+        scheduleDrain();
+        return true;
+    }
+    
+    private void closeForOverflow() {
+        Runnable close = () -> transport.close(1008, "Outbound queue overflow");
+        try {
+            writer.execute(close);
+        } catch (RejectedExecutionException e) {
+            // The writer has shut down, so no drain can race with closing the transport here.
+            close.run();
+        }
+    }
+    
+    private void scheduleDrain() {
+        if (!drainScheduled.compareAndSet(false, true)) return;
+        try {
+            writer.execute(this::drain);
+        } catch (Exception e) {
+            drainScheduled.set(false);
+        }
+    }
+    
+    private void drain() {
+        boolean backOff = false;
+        try {
+            backOff = writeBatch();
+        } finally {
+            if (backOff && !isEmpty()) {
+                try {
+                    writer.schedule(this::drain, BACKOFF_MS, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    drainScheduled.set(false);
+                }
+            } else {
+                drainScheduled.set(false);
+                if (!isEmpty()) scheduleDrain();
+            }
+        }
+    }
+    
+    private boolean writeBatch() {
+        if (!transport.isOpen()) {
+            close();
+            return false;
+        }
+        if (transport.hasBufferedData()) return true;
+        
+        for (int i = 0; i < MAX_FRAMES_PER_DRAIN; i++) {
+            OutboundFrame next;
+            synchronized (queue) {
+                next = queue.pollFirst();
+            }
+            if (next == null) return false;
+            
+            try {
+                transport.send(next, binary);
+                sent.incrementAndGet();
+            } catch (Exception e) {
+                close();
+                return false;
+            }
+        }
+        return transport.hasBufferedData();
+    }
+    
+    public void close() {
+        synchronized (queue) {
+            closed = true;
+            dropped.addAndGet(queue.size());
+            queue.clear();
+        }
+    }
+    
+    public boolean isEmpty() {
+        synchronized (queue) {
+            return queue.isEmpty();
+        }
+    }
+    
+    public int size() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+    
+    public long getSentCount() { return sent.get(); }
+    public long getDroppedCount() { return dropped.get(); }
+}
@@ -0,0 +1,72 @@
+package discord.chat.mc.websocket;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of live sessions keyed by a stable connection id. Writers (open/close/subscription changes)
+ * rebuild immutable snapshot arrays, overall and per {@link Topic}, so broadcasts and counts read them
+ * without taking any lock.
+ */
+public class ConnectionRegistry {
+    private static final ClientSession[] EMPTY = new ClientSession[0];
+    
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<Long, ClientSession> sessions = new ConcurrentHashMap<>();
+    private volatile ClientSession[] snapshot = EMPTY;
+    private volatile ClientSession[][] topicSnapshots = emptyTopicSnapshots();
+    
+    public long nextId() { return nextId.getAndIncrement(); }
+    
+    public void register(ClientSession session) {
+        sessions.put(session.getId(), session);
+        refreshSnapshot();
+    }
+    
+    public boolean unregister(ClientSession session) {
+        if (session == null || sessions.remove(session.getId()) == null) return false;
+        refreshSnapshot();
+        return true;
+    }
+    
+    public synchronized void refreshSnapshot() {
+        ClientSession[] all = sessions.isEmpty() ? EMPTY : sessions.values().toArray(EMPTY);
+        ClientSession[][] byTopic = emptyTopicSnapshots();
+        for (Topic topic : Topic.values()) {
+            int count = 0;
+            for (ClientSession session : all) {
+                if (session.isSubscribed(topic)) count++;
+            }
+            if (count == 0) continue;
+            
+            ClientSession[] subscribers = new ClientSession[count];
+            int i = 0;
+            for (ClientSession session : all) {
+                if (session.isSubscribed(topic)) subscribers[i++] = session;
+            }
+            byTopic[topic.ordinal()] = subscribers;
+        }
+        snapshot = all;
+        topicSnapshots = byTopic;
+    }
+    
+    private static ClientSession[][] emptyTopicSnapshots() {
+        ClientSession[][] byTopic = new ClientSession[Topic.count()][];
+        Arrays.fill(byTopic, EMPTY);
+        return byTopic;
+    }
+    
+    public ClientSession get(long id) { return sessions.get(id); }
+    public boolean isRegistered(ClientSession session) { return sessions.get(session.getId()) == session; }
+    public ClientSession[] snapshot() { return snapshot; }
+    public ClientSession[] subscribers(Topic topic) { return topicSnapshots[topic.ordinal()]; }
+    public int size() { return snapshot.length; }
+    public boolean isEmpty() { return snapshot.length == 0; }
+    
+    public void clear() {
+        sessions.clear();
+        refreshSnapshot();
+    }
+}
@@ -0,0 +1,58 @@
+package discord.chat.mc.websocket;
+
+import java.util.Locale;
+
+/**
+ * Case-insensitive glob a session can attach to a subscription: {@code *} matches any run of characters,
+ * {@code ?} any single one, and everything else is literal. Like a substring search the glob may match
+ * anywhere in the line. Matching is a single pass with at most one backtrack point, so it costs at most
+ * pattern length times line length and a client cannot stall the shared outbound writer the way an
+ * arbitrary regular expression could.
+ */
+public final class ContentFilter {
+    public static final int MAX_LENGTH = 128;
+    
+    private final String glob;
+    
+    private ContentFilter(String glob) {
+        this.glob = glob;
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the glob is longer than {@link #MAX_LENGTH}
+     */
+    public static ContentFilter compile(String glob) {
+        if (glob.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("filter is longer than " + MAX_LENGTH + " characters");
+        }
+        return new ContentFilter("*" + glob.toLowerCase(Locale.ROOT) + "*");
+    }
+    
+    public boolean matches(String content) {
+        if (content == null) return false;
+        String text = content.toLowerCase(Locale.ROOT);
+        int t = 0;
+        int g = 0;
+        int starAt = -1;
+        int resumeAt = 0;
+        while (t < text.length()) {
+            if (g < glob.length() && glob.charAt(g) == '*') {
+                starAt = g++;
+                resumeAt = t;
+            } else if (g < glob.length() && (glob.charAt(g) == '?' || glob.charAt(g) == text.charAt(t))) {
+                g++;
+                t++;
+            } else if (starAt >= 0) {
+                g = starAt + 1;
+                t = ++resumeAt;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') g++;
+        return g == glob.length();
+    }
+    
+    @Override
+    public String toString() { return glob; }
+}
@@ -1,55 +1,137 @@
 package discord.chat.mc.websocket;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 import discord.chat.mc.DiscordChatIntegration;
-import discord.chat.mc.chat.ChatHandler;
+import discord.chat.mc.concurrent.KeyedSerialExecutor;
+import discord.chat.mc.concurrent.ModExecutors;
+import discord.chat.mc.config.ModConfig;
 import net.minecraft.client.Minecraft;
 import net.minecraft.network.chat.Component;
 import org.java_websocket.WebSocket;
 import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.handshake.ServerHandshakeBuilder;
 import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
 import org.java_websocket.server.WebSocketServer;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class DiscordWebSocketServer extends WebSocketServer {
-    private static final Gson GSON = new Gson();
+    public static final String HEARTBEAT_CAPABILITY = "heartbeat";
+    
+    private static final long DRAIN_POLL_MS = 10;
+    private static final int RESTART_BUFFER_LINES = 512;
+    private static final int CLOSE_GOING_AWAY = 1001;
+    private static final int CLOSE_SERVICE_RESTART = 1012;
+    
     private static DiscordWebSocketServer instance;
+    private static final ArrayDeque<String[]> restartBuffer = new ArrayDeque<>();
+    private static long restartBufferUntil = 0;
+    
+    private final ConnectionRegistry connections = new ConnectionRegistry();
+    private Predicate<ChatMessage> messageHandler;
+    private volatile boolean running = false;
+    private volatile boolean draining = false;
     
-    private final Set<WebSocket> connections = Collections.synchronizedSet(new HashSet<>());
-    private Consumer<ChatMessage> messageHandler;
-    private boolean running = false;
-    private List<String> cachedAutomationNames = new ArrayList<>();
-    private String lastAutomationResult = null;
+    private final KeyedSerialExecutor messageExecutor = ModExecutors.newKeyedExecutor("Discord-WebSocket-Message-Processor", 2,
+        ModConfig.getInstance().getInboundQueueCapacity());
+    private final ScheduledExecutorService outboundWriter = ModExecutors.newScheduler("Discord-Outbound-Writer");
     
-    private final ExecutorService messageExecutor = Executors.newFixedThreadPool(2, r -> {
-        Thread t = new Thread(r, "Discord-WebSocket-Message-Processor");
-        t.setDaemon(true);
-        return t;
-    });
+    private final MinecraftMessageBatcher minecraftBatcher;
+    private final AdmissionControl admission;
+    private final AutomationRpc automationRpc = new AutomationRpc(outboundWriter);
+    private final AutomationCatalog automationCatalog = new AutomationCatalog();
+    private final Map<Long, Boolean> catalogFetches = new ConcurrentHashMap<>();
+    private final AtomicLong reapedSessions = new AtomicLong();
+    private final AtomicLong drainRejected = new AtomicLong();
+    private LocalSocketEndpoint localEndpoint;
     
-    private final ScheduledExecutorService tickBroadcaster = Executors.newSingleThreadScheduledExecutor(r -> {
-        Thread t = new Thread(r, "Discord-Tick-Broadcaster");
-        t.setDaemon(true);
-        return t;
-    });
+    /**
+     * Installs the built-in protocol verbs. Called once by the {@link MessageDispatcher} constructor, before the
+     * dispatcher is handed out, so addons can never claim these types first.
+     */
+    static void registerBuiltInHandlers(MessageDispatcher.BuiltIns dispatcher) {
+        dispatcher.register("client_hello", InboundMessages::readCapabilities, InboundMessages::readCapabilities,
+            (session, capabilities) -> {
+                if (capabilities != null) capabilities.forEach(session::addCapability);
+                session.getServer().sendTickAnchor(session);
+            });
+        dispatcher.register("discord_message", InboundMessages::readChatMessage, InboundMessages::readChatMessage,
+            (session, message) -> session.getServer().handleDiscordMessage(session, message));
+        dispatcher.register("subscribe", InboundMessages::readSubscription, InboundMessages::readSubscription,
+            (session, subscription) -> session.getServer().handleSubscription(session, subscription, true));
+        dispatcher.register("unsubscribe", InboundMessages::readSubscription, InboundMessages::readSubscription,
+            (session, subscription) -> session.getServer().handleSubscription(session, subscription, false));
+        dispatcher.register("set_sync_group", InboundMessages::readSyncGroup, InboundMessages::readSyncGroup,
+            ClientSession::setSyncGroup);
+        dispatcher.register("get_tick", InboundMessages.EMPTY, InboundMessages.EMPTY_BINARY,
+            (session, message) -> session.getServer().sendCurrentTick(session));
+        dispatcher.register("ping", InboundMessages::readTimestamp, InboundMessages::readTimestamp,
+            (session, timestamp) -> session.send(OutboundMessages.pong(timestamp)));
+        dispatcher.register("pong", InboundMessages::readTimestamp, InboundMessages::readTimestamp,
+            (session, timestamp) -> {
+                if (timestamp != null) session.recordRtt(System.currentTimeMillis() - timestamp);
+            });
+        dispatcher.register("request_player_info", InboundMessages.EMPTY, InboundMessages.EMPTY_BINARY,
+            (session, message) -> session.getServer().sendPlayerInfo(session));
+        dispatcher.register("automations_list", InboundMessages::readAutomationsList, InboundMessages::readAutomationsList,
+            (session, list) -> session.getServer().handleAutomationsList(session, list));
+        dispatcher.register("automation_result", InboundMessages::readAutomationResult, InboundMessages::readAutomationResult,
+            (session, result) -> session.getServer().handleAutomationResult(session, result));
+        dispatcher.register("automations_changed", InboundMessages::readAutomationsList, InboundMessages::readAutomationsList,
+            (session, list) -> session.getServer().handleAutomationsChanged(session, list));
+    }
     
     public DiscordWebSocketServer(int port) {
-        super(new InetSocketAddress("127.0.0.1", port));
+        super(new InetSocketAddress("127.0.0.1", port), createDrafts(ModConfig.getInstance()));
         this.setReuseAddr(true);
+        // reapAndPing owns heartbeats and idle detection; the library's own lost-connection timer would ping
+        // every connection a second time and race it to close them.
+        this.setConnectionLostTimeout(0);
+        
+        ModConfig config = ModConfig.getInstance();
+        this.admission = new AdmissionControl(config);
+        this.minecraftBatcher = new MinecraftMessageBatcher(outboundWriter, config.getChatBatchWindowMs(),
+            config.getChatBatchMaxMessages(), (authors, contents) -> deliverMinecraftMessages(authors, contents, true));
+    }
+    
+    private static List<Draft> createDrafts(ModConfig config) {
+        List<IExtension> extensions = new ArrayList<>();
+        if (config.isCompressionEnabled()) {
+            // Each connection negotiates its own copy, so a client offering client_no_context_takeover or
+            // server_no_context_takeover gets that mode without affecting the others.
+            PerMessageDeflateExtension deflate = new PerMessageDeflateExtension();
+            deflate.setThreshold(Math.max(0, config.getCompressionThreshold()));
+            deflate.setServerNoContextTakeover(!config.isCompressionContextTakeover());
+            deflate.setClientNoContextTakeover(!config.isCompressionContextTakeover());
+            extensions.add(deflate);
+        }
+        
+        List<IProtocol> protocols = List.of(new Protocol(BinaryCodec.SUBPROTOCOL), new Protocol(""));
+        return List.of(new Draft_6455(extensions, protocols));
     }
     
     @Override
@@ -63,6 +145,13 @@ public class DiscordWebSocketServer extends WebSocketServer {
             DiscordChatIntegration.LOGGER.warn("Rejected WebSocket from disallowed origin: '{}'", origin);
             throw new InvalidDataException(403, "Origin not allowed: " + origin);
         }
+        if (draining) {
+            throw new InvalidDataException(503, "Server is shutting down");
+        }
+        if (!admitConnection()) {
+            DiscordChatIntegration.LOGGER.warn("Rejected WebSocket from {}: connection limit reached", conn.getRemoteSocketAddress());
+            throw new InvalidDataException(503, "Too many connections");
+        }
         
         return builder;
     }
@@ -98,47 +187,49 @@ public class DiscordWebSocketServer extends WebSocketServer {
         instance = new DiscordWebSocketServer(port);
     }
     
-    public void setMessageHandler(Consumer<ChatMessage> handler) { this.messageHandler = handler; }
+    /**
+     * @param handler takes a message from Discord and returns false if it could not be queued for processing
+     */
+    public void setMessageHandler(Predicate<ChatMessage> handler) { this.messageHandler = handler; }
     
     @Override
     public void onOpen(WebSocket conn, ClientHandshake handshake) {
-        connections.add(conn);
-        DiscordChatIntegration.LOGGER.info("Discord client connected from: {}", conn.getRemoteSocketAddress());
-        
-        JsonObject response = new JsonObject();
-        response.addProperty("type", "connection_status");
-        response.addProperty("status", "connected");
-        response.addProperty("message", "Connected to Minecraft Discord Chat Integration");
+        boolean binary = isBinaryProtocol(conn);
+        openSession(new WebSocketTransport(conn), binary, conn::setAttachment);
+    }
+    
+    ClientSession openSession(SessionTransport transport, boolean binary, Consumer<ClientSession> attach) {
+        ModConfig config = ModConfig.getInstance();
+        if (binary) BinaryCodec.sessionOpened();
+        ConnectionOutbox outbox = new ConnectionOutbox(transport, outboundWriter,
+            config.getOutboundQueueCapacity(), config.getOutboundOverflowPolicy(), binary);
+        ClientSession session = new ClientSession(this, connections.nextId(), transport, outbox, binary,
+            admission.newSessionLimits());
+        attach.accept(session);
+        connections.register(session);
+        DiscordChatIntegration.LOGGER.info("Discord client connected from: {}{}", transport.getRemoteDescription(),
+            binary ? " (binary protocol)" : "");
         
-        String playerName = getPlayerName();
-        if (playerName != null) response.addProperty("playerName", playerName);
-        conn.send(GSON.toJson(response));
+        session.send(OutboundMessages.connectionStatus("connected", "Connected to Minecraft Discord Chat Integration", getPlayerName()));
+        if (session.isSubscribed(Topic.AUTOMATION_RESULTS)) fetchAutomations(new ClientSession[] { session });
         
-        Minecraft client = Minecraft.getInstance();
-        if (client != null) {
-            new Thread(() -> {
-                try {
-                    for (int i = 0; i < 15; i++) {
-                        Thread.sleep(1000);
-                        String name = getPlayerName();
-                        if (name != null && conn.isOpen()) {
-                            JsonObject update = new JsonObject();
-                            update.addProperty("type", "connection_status");
-                            update.addProperty("status", "connected");
-                            update.addProperty("message", "Player name update");
-                            update.addProperty("playerName", name);
-                            conn.send(GSON.toJson(update));
-                            break;
-                        }
-                    }
-                } catch (Exception ignored) {}
-            }, "PlayerName-Resolver").start();
+        if (connections.size() == 1) {
+            showConnectionNotification(true);
+            replayRestartBuffer(this);
+        }
+        return session;
+    }
+    
+    private boolean isBinaryProtocol(WebSocket conn) {
+        try {
+            IProtocol protocol = conn.getProtocol();
+            return protocol != null && BinaryCodec.SUBPROTOCOL.equals(protocol.getProvidedProtocol());
+        } catch (Exception e) {
+            return false;
         }
-        
-        if (connections.size() == 1) showConnectionNotification(true);
     }
     
-    private String getPlayerName() {
+    String getPlayerName() {
         try {
             Minecraft client = Minecraft.getInstance();
             if (client == null) return null;
@@ -167,54 +258,229 @@ public class DiscordWebSocketServer extends WebSocketServer {
     
     @Override
     public void onClose(WebSocket conn, int code, String reason, boolean remote) {
-        connections.remove(conn);
+        disconnectSession(conn.getAttachment(), code);
+    }
+    
+    boolean admitConnection() {
+        return !draining && admission.admitConnection(connections.size());
+    }
+    
+    @Override
+    public void onWebsocketPong(WebSocket conn, Framedata frame) {
+        super.onWebsocketPong(conn, frame);
+        ClientSession session = conn.getAttachment();
+        if (session != null) session.onPong();
+    }
+    
+    private void reapAndPing() {
+        try {
+            long idleLimit = ModConfig.getInstance().getIdleTimeoutSeconds() * 1000L;
+            long now = System.currentTimeMillis();
+            boolean removed = false;
+            
+            for (ClientSession session : connections.snapshot()) {
+                if (!session.isOpen()) {
+                    removed |= reap(session, "closed");
+                    continue;
+                }
+                SessionTransport transport = session.getTransport();
+                if (!transport.supportsHeartbeat()) continue;
+                
+                if (idleLimit > 0 && now - session.getLastSeen() > idleLimit) {
+                    transport.abort("Heartbeat timeout");
+                    removed |= reap(session, "idle for " + (now - session.getLastSeen()) / 1000 + "s");
+                    continue;
+                }
+                
+                transport.sendPing();
+                session.onPingSent();
+                if (session.hasCapability(HEARTBEAT_CAPABILITY)) session.send(OutboundMessages.ping(now));
+            }
+            
+            if (removed && connections.isEmpty()) showConnectionNotification(false);
+        } catch (Exception e) {
+            DiscordChatIntegration.LOGGER.error("Heartbeat check failed: {}", e.getMessage());
+        }
+    }
+    
+    private boolean reap(ClientSession session, String reason) {
+        if (!connections.isRegistered(session)) return false;
+        session.markReaped();
+        removeSession(session);
+        reapedSessions.incrementAndGet();
+        DiscordChatIntegration.LOGGER.info("Reaped Discord client {} ({})", session.getRemoteDescription(), reason);
+        return true;
+    }
+    
+    void disconnectSession(ClientSession session, int code) {
+        removeSession(session);
         DiscordChatIntegration.LOGGER.info("Discord client disconnected (code: {})", code);
-        if (connections.isEmpty()) showConnectionNotification(false);
+        // A reaped session's close arrives after the reaper has already told the player.
+        if (connections.isEmpty() && (session == null || !session.isReaped())) showConnectionNotification(false);
     }
     
     @Override
     public void onMessage(WebSocket conn, String message) {
-        messageExecutor.execute(() -> {
-            try {
-                JsonObject json = GSON.fromJson(message, JsonObject.class);
-                String type = json.has("type") ? json.get("type").getAsString() : "";
-                
-                if ("discord_message".equals(type)) {
-                    String author = json.has("author") ? json.get("author").getAsString() : "Unknown";
-                    String content = json.has("content") ? json.get("content").getAsString() : "";
-                    String messageId = json.has("messageId") ? json.get("messageId").getAsString() : null;
-                    boolean tickSync = json.has("tickSync") && json.get("tickSync").getAsBoolean();
-                    String syncGroup = json.has("syncGroup") ? json.get("syncGroup").getAsString() : "none";
-                    long targetTick = json.has("targetTick") ? json.get("targetTick").getAsLong() : -1;
-                    
-                    if (messageHandler != null && !content.isEmpty()) {
-                        messageHandler.accept(new ChatMessage(author, content, messageId, tickSync, syncGroup, targetTick));
-                    }
-                } else if ("set_sync_group".equals(type)) {
-                    String syncGroup = json.has("syncGroup") ? json.get("syncGroup").getAsString() : "none";
-                    ChatHandler.getInstance().setLastSyncGroup(syncGroup);
-                } else if ("get_tick".equals(type)) {
-                    sendCurrentTick(conn);
-                } else if ("ping".equals(type)) {
-                    JsonObject pong = new JsonObject();
-                    pong.addProperty("type", "pong");
-                    conn.send(GSON.toJson(pong));
-                } else if ("request_player_info".equals(type)) {
-                    sendPlayerInfo(conn);
-                } else if ("automations_list".equals(type)) {
-                    if (json.has("automations") && json.get("automations").isJsonArray()) {
-                        cachedAutomationNames.clear();
-                        json.get("automations").getAsJsonArray().forEach(el -> cachedAutomationNames.add(el.getAsString()));
-                    }
-                } else if ("automation_result".equals(type)) {
-                    boolean success = json.has("success") && json.get("success").getAsBoolean();
-                    String msg = json.has("message") ? json.get("message").getAsString() : "";
-                    lastAutomationResult = success ? "§a" + msg : "§c" + msg;
+        receive(conn.getAttachment(), message);
+    }
+    
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        receive(conn.getAttachment(), message);
+    }
+    
+    void receive(ClientSession session, String message) {
+        if (session == null) return;
+        session.onMessageReceived();
+        
+        String type = MessageDispatcher.peekType(message);
+        if (!admission.tryAcquireSession(session)) {
+            reject(session, AdmissionControl.RATE_LIMITED, type);
+            return;
+        }
+        
+        MessageDispatcher.Route<?> route = MessageDispatcher.getInstance().resolve(type);
+        if (route == null) {
+            DiscordChatIntegration.LOGGER.debug("Ignoring WebSocket message with unknown type: {}", type);
+            return;
+        }
+        
+        submit(session, type, () -> route.dispatch(session, message));
+    }
+    
+    void receive(ClientSession session, ByteBuffer message) {
+        if (session == null) return;
+        session.onMessageReceived();
+        
+        String type = BinaryCodec.peekType(message);
+        if (!admission.tryAcquireSession(session)) {
+            reject(session, AdmissionControl.RATE_LIMITED, type);
+            return;
+        }
+        
+        MessageDispatcher.Route<?> route = MessageDispatcher.getInstance().resolve(type);
+        if (route == null || !route.acceptsBinary()) {
+            DiscordChatIntegration.LOGGER.debug("Ignoring binary WebSocket message with unsupported type: {}", type);
+            return;
+        }
+        
+        submit(session, type, () -> route.dispatch(session, message));
+    }
+    
+    private void submit(ClientSession session, String type, Runnable dispatch) {
+        if (draining && "discord_message".equals(type)) {
+            drainRejected.incrementAndGet();
+            session.send(OutboundMessages.error(AdmissionControl.SHUTTING_DOWN, "Server is restarting, resend after reconnecting", type));
+        } else if (!admission.tryAcquireType(session, type)) {
+            reject(session, AdmissionControl.RATE_LIMITED, type);
+        } else if (!messageExecutor.tryExecute(session.getId(), dispatch)) {
+            admission.recordQueueRejected();
+            reject(session, AdmissionControl.QUEUE_FULL, type);
+        } else {
+            admission.recordAccepted();
+        }
+    }
+    
+    private void reject(ClientSession session, String code, String type) {
+        if (!session.getLimits().shouldNotifyRejection()) return;
+        String message = AdmissionControl.QUEUE_FULL.equals(code)
+            ? "Server is busy, message was not processed"
+            : "Rate limit exceeded, message was not processed";
+        session.send(OutboundMessages.error(code, message, type));
+    }
+    
+    private void handleDiscordMessage(ClientSession session, ChatMessage message) {
+        session.setSyncGroup(message.syncGroup);
+        if (messageHandler == null || message.content.isEmpty()) return;
+        if (!messageHandler.test(message.forSession(session.getId()))) {
+            admission.recordQueueRejected();
+            reject(session, AdmissionControl.QUEUE_FULL, "discord_message");
+        }
+    }
+    
+    private void handleSubscription(ClientSession session, InboundMessages.Subscription subscription, boolean subscribe) {
+        Set<Topic> topics = EnumSet.noneOf(Topic.class);
+        for (String name : subscription.topics) {
+            Topic topic = Topic.fromWireName(name);
+            if (topic != null) {
+                topics.add(topic);
+            } else {
+                DiscordChatIntegration.LOGGER.debug("Ignoring unknown subscription topic: {}", name);
+            }
+        }
+        
+        if (subscribe) {
+            ContentFilter filter = null;
+            if (subscription.filter != null) {
+                try {
+                    filter = ContentFilter.compile(subscription.filter);
+                } catch (IllegalArgumentException e) {
+                    DiscordChatIntegration.LOGGER.warn("Rejected subscription with invalid filter: {}", e.getMessage());
+                    topics.clear();
                 }
-            } catch (Exception e) {
-                DiscordChatIntegration.LOGGER.error("Error parsing WebSocket message: {}", e.getMessage());
             }
-        });
+            if (!topics.isEmpty()) session.subscribe(topics, filter);
+        } else {
+            session.unsubscribe(topics);
+        }
+        connections.refreshSnapshot();
+        
+        List<String> active = new ArrayList<>();
+        for (Topic topic : session.getTopics()) active.add(topic.getWireName());
+        session.send(OutboundMessages.subscriptions(active));
+    }
+    
+    private void handleAutomationsList(ClientSession session, InboundMessages.AutomationsList list) {
+        automationCatalog.update(session.getId(), list.names);
+        automationRpc.complete(session, "automations_list", list.requestId, list);
+    }
+    
+    private void handleAutomationsChanged(ClientSession session, InboundMessages.AutomationsList list) {
+        if (list.included) {
+            automationCatalog.update(session.getId(), list.names);
+        } else {
+            automationCatalog.invalidate();
+            fetchAutomations(new ClientSession[] { session });
+        }
+    }
+    
+    private void refreshCatalogIfStale() {
+        long ttlMs = ModConfig.getInstance().getAutomationCatalogTtlSeconds() * 1000L;
+        if (connections.isEmpty() || !automationCatalog.isStale(ttlMs)) return;
+        fetchAutomations(connections.subscribers(Topic.AUTOMATION_RESULTS));
+    }
+    
+    /**
+     * Asks the given sessions for their automations. A session whose fetch is already in flight is not asked
+     * again; it is marked instead and fetched once more when that reply lands, since the reply may predate
+     * whatever triggered this call.
+     */
+    private void fetchAutomations(ClientSession[] targets) {
+        List<ClientSession> fresh = new ArrayList<>(targets.length);
+        for (ClientSession session : targets) {
+            if (catalogFetches.putIfAbsent(session.getId(), false) == null) {
+                fresh.add(session);
+            } else {
+                catalogFetches.replace(session.getId(), false, true);
+            }
+        }
+        if (fresh.isEmpty()) return;
+        
+        ClientSession[] asked = fresh.toArray(new ClientSession[0]);
+        this.<InboundMessages.AutomationsList>sendAutomationRequest("automations_list", asked, OutboundMessages::getAutomations)
+            .whenComplete((result, error) -> {
+                List<ClientSession> again = new ArrayList<>();
+                for (ClientSession session : asked) {
+                    if (Boolean.TRUE.equals(catalogFetches.remove(session.getId())) && session.isOpen()) again.add(session);
+                }
+                if (!again.isEmpty() && running) fetchAutomations(again.toArray(new ClientSession[0]));
+            });
+    }
+    
+    private void handleAutomationResult(ClientSession session, InboundMessages.AutomationResult result) {
+        if (!automationRpc.complete(session, "automation_result", result.requestId, result)) {
+            DiscordChatIntegration.LOGGER.debug("Discarding automation result with no matching request: {}", result.requestId);
+        }
     }
     
     @Override
@@ -225,7 +491,7 @@ public class DiscordWebSocketServer extends WebSocketServer {
         } else {
             DiscordChatIntegration.LOGGER.error("WebSocket error: {}", msg);
         }
-        if (conn != null) connections.remove(conn);
+        if (conn != null) removeSession(conn.getAttachment());
     }
     
     @Override
@@ -233,11 +499,19 @@ public class DiscordWebSocketServer extends WebSocketServer {
         running = true;
         DiscordChatIntegration.LOGGER.info("Discord WebSocket server started on port {}", getPort());
         
-        tickBroadcaster.scheduleAtFixedRate(() -> {
-            try {
-                if (!connections.isEmpty()) broadcastCurrentTick();
-            } catch (Exception ignored) {}
-        }, 1000, 500, TimeUnit.MILLISECONDS);
+        ModConfig config = ModConfig.getInstance();
+        int catalogTtlSeconds = Math.max(1, config.getAutomationCatalogTtlSeconds());
+        outboundWriter.scheduleAtFixedRate(this::refreshCatalogIfStale, catalogTtlSeconds, catalogTtlSeconds, TimeUnit.SECONDS);
+        
+        int heartbeatSeconds = config.getHeartbeatIntervalSeconds();
+        if (heartbeatSeconds > 0) {
+            outboundWriter.scheduleAtFixedRate(this::reapAndPing, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        }
+        
+        if (config.isLocalSocketEnabled()) {
+            localEndpoint = new LocalSocketEndpoint(this, config.getLocalSocketPath());
+            localEndpoint.start();
+        }
     }
     
     public long getCurrentServerTick() {
@@ -248,117 +522,279 @@ public class DiscordWebSocketServer extends WebSocketServer {
         return -1;
     }
     
-    public void broadcastCurrentTick() {
-        long tick = getCurrentServerTick();
-        if (tick < 0) return;
-        
-        JsonObject json = new JsonObject();
-        json.addProperty("type", "tick_update");
-        json.addProperty("tick", tick);
-        
-        String jsonString = GSON.toJson(json);
-        synchronized (connections) {
-            for (WebSocket conn : connections) {
-                if (conn.isOpen()) conn.send(jsonString);
-            }
+    void publishTickAnchor(TickPublisher.Anchor anchor) {
+        OutboundFrame frame = null;
+        for (ClientSession session : connections.subscribers(Topic.TICKS)) {
+            if (!session.hasCapability(TickPublisher.CAPABILITY)) continue;
+            if (frame == null) frame = OutboundMessages.tickAnchor(anchor.tick, anchor.nanos, anchor.getRateMillis());
+            session.send(frame);
         }
     }
     
-    private void sendCurrentTick(WebSocket conn) {
-        JsonObject json = new JsonObject();
-        json.addProperty("type", "tick_update");
-        json.addProperty("tick", getCurrentServerTick());
-        conn.send(GSON.toJson(json));
+    void publishLegacyTick(long tick) {
+        OutboundFrame frame = null;
+        for (ClientSession session : connections.subscribers(Topic.TICKS)) {
+            if (session.hasCapability(TickPublisher.CAPABILITY)) continue;
+            if (frame == null) frame = OutboundMessages.tickUpdate(tick);
+            session.send(frame);
+        }
+    }
+    
+    private void sendTickAnchor(ClientSession session) {
+        TickPublisher.Anchor anchor = TickPublisher.getInstance().getAnchor();
+        if (anchor == null || !session.hasCapability(TickPublisher.CAPABILITY)) return;
+        session.send(OutboundMessages.tickAnchor(anchor.tick, anchor.nanos, anchor.getRateMillis()));
+    }
+    
+    private void sendCurrentTick(ClientSession session) {
+        session.send(OutboundMessages.tickUpdate(getCurrentServerTick()));
     }
     
-    private void sendPlayerInfo(WebSocket conn) {
+    private void sendPlayerInfo(ClientSession session) {
         String playerName = getPlayerName();
         Minecraft client = Minecraft.getInstance();
         boolean inWorld = client != null && client.level != null;
         boolean inMultiplayer = client != null && !client.isSingleplayer() && client.level != null;
         
-        JsonObject json = new JsonObject();
-        json.addProperty("type", "player_info");
-        json.addProperty("name", playerName != null ? playerName : "Unknown");
-        json.addProperty("inWorld", inWorld);
-        json.addProperty("inMultiplayer", inMultiplayer);
-        if (inWorld) json.addProperty("serverTick", getCurrentServerTick());
-        
-        conn.send(GSON.toJson(json));
+        session.send(OutboundMessages.playerInfo(playerName != null ? playerName : "Unknown", inWorld, inMultiplayer,
+            inWorld ? getCurrentServerTick() : -1));
+    }
+    
+    void publishPlayerState(String playerName, boolean inWorld, boolean inMultiplayer) {
+        if (playerName != null) {
+            broadcastFrame(Topic.PLAYER_INFO, OutboundMessages.connectionStatus("connected", "Player name update", playerName));
+        }
+        broadcastFrame(Topic.PLAYER_INFO, OutboundMessages.playerInfo(playerName != null ? playerName : "Unknown", inWorld, inMultiplayer,
+            inWorld ? getCurrentServerTick() : -1));
     }
     
+    /**
+     * Sends a chat line straight to sessions without the {@value MinecraftMessageBatcher#CAPABILITY} capability,
+     * which gain nothing from waiting, and hands it to the batcher for those that advertised it.
+     */
     public void broadcastMinecraftMessage(String playerName, String message) {
-        JsonObject json = new JsonObject();
-        json.addProperty("type", "minecraft_message");
-        json.addProperty("author", playerName);
-        json.addProperty("content", message);
+        List<String> authors = Collections.singletonList(playerName);
+        List<String> contents = Collections.singletonList(message);
+        deliverMinecraftMessages(authors, contents, false);
         
-        String jsonString = GSON.toJson(json);
-        synchronized (connections) {
-            connections.removeIf(conn -> !conn.isOpen());
-            for (WebSocket conn : connections) conn.send(jsonString);
+        for (ClientSession session : connections.snapshot()) {
+            if (session.hasCapability(MinecraftMessageBatcher.CAPABILITY)) {
+                minecraftBatcher.add(playerName, message);
+                return;
+            }
         }
     }
     
-    public int getConnectionCount() { return connections.size(); }
-    public boolean isRunning() { return running; }
+    public static void forwardMinecraftMessage(String playerName, String message) {
+        DiscordWebSocketServer server = instance;
+        synchronized (restartBuffer) {
+            if (server != null && server.running && !server.draining && server.getConnectionCount() > 0) {
+                replayRestartBuffer(server);
+                server.broadcastMinecraftMessage(playerName, message);
+            } else if (System.currentTimeMillis() <= restartBufferUntil) {
+                if (restartBuffer.size() >= RESTART_BUFFER_LINES) restartBuffer.pollFirst();
+                restartBuffer.addLast(new String[] { playerName, message });
+            }
+        }
+    }
     
-    public void requestAutomationsList() {
-        JsonObject json = new JsonObject();
-        json.addProperty("type", "get_automations");
-        String jsonString = GSON.toJson(json);
-        synchronized (connections) {
-            for (WebSocket conn : connections) {
-                if (conn.isOpen()) conn.send(jsonString);
+    private static void replayRestartBuffer(DiscordWebSocketServer server) {
+        synchronized (restartBuffer) {
+            if (restartBuffer.isEmpty()) return;
+            if (System.currentTimeMillis() > restartBufferUntil) {
+                DiscordChatIntegration.LOGGER.warn("Discarded {} chat line(s) held for a restart that no client reconnected to", restartBuffer.size());
+            } else {
+                DiscordChatIntegration.LOGGER.info("Replaying {} chat line(s) held during restart", restartBuffer.size());
+                for (String[] line : restartBuffer) server.broadcastMinecraftMessage(line[0], line[1]);
             }
+            restartBuffer.clear();
+            restartBufferUntil = 0;
         }
     }
     
-    public void runAutomation(String automationName) {
-        JsonObject json = new JsonObject();
-        json.addProperty("type", "run_automation");
-        json.addProperty("name", automationName);
-        String jsonString = GSON.toJson(json);
-        synchronized (connections) {
-            for (WebSocket conn : connections) {
-                if (conn.isOpen()) conn.send(jsonString);
+    private void deliverMinecraftMessages(List<String> authors, List<String> contents, boolean batchSessions) {
+        int count = contents.size();
+        if (count == 0) return;
+        Topic[] lineTopics = new Topic[count];
+        boolean mixed = false;
+        for (int i = 0; i < count; i++) {
+            lineTopics[i] = Topic.classifyLine(contents.get(i));
+            if (lineTopics[i] != lineTopics[0]) mixed = true;
+        }
+        
+        ClientSession[] sessions = mixed ? connections.snapshot() : connections.subscribers(lineTopics[0]);
+        OutboundFrame batch = null;
+        OutboundFrame[] singles = null;
+        
+        for (ClientSession session : sessions) {
+            if (session.hasCapability(MinecraftMessageBatcher.CAPABILITY) != batchSessions) continue;
+            if (mixed || session.hasFilters()) {
+                deliverFiltered(session, authors, contents, lineTopics);
+                continue;
+            }
+            
+            if (count > 1 && session.hasCapability(MinecraftMessageBatcher.CAPABILITY)) {
+                if (batch == null) batch = OutboundMessages.minecraftBatch(authors, contents);
+                session.send(batch);
+                continue;
             }
+            
+            if (singles == null) {
+                singles = new OutboundFrame[count];
+                for (int i = 0; i < count; i++) {
+                    singles[i] = OutboundMessages.minecraftMessage(authors.get(i), contents.get(i));
+                }
+            }
+            for (OutboundFrame frame : singles) session.send(frame);
         }
     }
     
-    public void stopAutomations() {
-        JsonObject json = new JsonObject();
-        json.addProperty("type", "stop_automation");
-        String jsonString = GSON.toJson(json);
-        synchronized (connections) {
-            for (WebSocket conn : connections) {
-                if (conn.isOpen()) conn.send(jsonString);
+    private void deliverFiltered(ClientSession session, List<String> authors, List<String> contents, Topic[] lineTopics) {
+        List<String> acceptedAuthors = new ArrayList<>();
+        List<String> acceptedContents = new ArrayList<>();
+        for (int i = 0; i < lineTopics.length; i++) {
+            if (!session.accepts(lineTopics[i], contents.get(i))) continue;
+            acceptedAuthors.add(authors.get(i));
+            acceptedContents.add(contents.get(i));
+        }
+        if (acceptedContents.isEmpty()) return;
+        
+        if (acceptedContents.size() > 1 && session.hasCapability(MinecraftMessageBatcher.CAPABILITY)) {
+            session.send(OutboundMessages.minecraftBatch(acceptedAuthors, acceptedContents));
+        } else {
+            for (int i = 0; i < acceptedContents.size(); i++) {
+                session.send(OutboundMessages.minecraftMessage(acceptedAuthors.get(i), acceptedContents.get(i)));
             }
         }
     }
     
-    public List<String> getCachedAutomationNames() {
-        return new ArrayList<>(cachedAutomationNames);
+    private void broadcastFrame(Topic topic, OutboundFrame frame) {
+        for (ClientSession session : connections.subscribers(topic)) session.send(frame);
     }
     
-    public String getAndClearAutomationResult() {
-        String result = lastAutomationResult;
-        lastAutomationResult = null;
-        return result;
+    private void removeSession(ClientSession session) {
+        if (session == null) return;
+        session.getOutbox().close();
+        if (connections.unregister(session) && session.isBinaryProtocol()) BinaryCodec.sessionClosed();
+        automationRpc.sessionClosed(session);
+        automationCatalog.remove(session.getId());
     }
     
-    public void stopServer() {
+    public int getConnectionCount() { return connections.size(); }
+    public AdmissionControl getAdmissionControl() { return admission; }
+    public long getReapedSessionCount() { return reapedSessions.get(); }
+    public int getInboundQueueDepth() { return messageExecutor.getPendingCount(); }
+    public ClientSession[] getSessions() { return connections.snapshot(); }
+    
+    public Set<String> getSyncGroups() {
+        Set<String> groups = new LinkedHashSet<>();
+        for (ClientSession session : connections.snapshot()) groups.add(session.getSyncGroup());
+        return groups;
+    }
+    public boolean isRunning() { return running; }
+    public boolean isDraining() { return draining; }
+    
+    public CompletableFuture<AutomationRpc.Result<InboundMessages.AutomationsList>> requestAutomationsList() {
+        return sendAutomationRequest("automations_list", OutboundMessages::getAutomations);
+    }
+    
+    public CompletableFuture<AutomationRpc.Result<InboundMessages.AutomationResult>> runAutomation(String automationName) {
+        return sendAutomationRequest("automation_result", requestId -> OutboundMessages.runAutomation(requestId, automationName));
+    }
+    
+    public CompletableFuture<AutomationRpc.Result<InboundMessages.AutomationResult>> stopAutomations() {
+        return sendAutomationRequest("automation_result", OutboundMessages::stopAutomation);
+    }
+    
+    private <T> CompletableFuture<AutomationRpc.Result<T>> sendAutomationRequest(String replyType,
+                                                                                Function<String, OutboundFrame> encoder) {
+        return sendAutomationRequest(replyType, connections.subscribers(Topic.AUTOMATION_RESULTS), encoder);
+    }
+    
+    private <T> CompletableFuture<AutomationRpc.Result<T>> sendAutomationRequest(String replyType, ClientSession[] targets,
+                                                                                Function<String, OutboundFrame> encoder) {
+        AutomationRpc.PendingRequest<T> request = automationRpc.begin(replyType, targets,
+            ModConfig.getInstance().getAutomationTimeoutMs());
+        
+        OutboundFrame frame = encoder.apply(request.getId());
+        for (ClientSession session : targets) session.send(frame);
+        return request.getFuture();
+    }
+    
+    public AutomationCatalog getAutomationCatalog() { return automationCatalog; }
+    
+    public DrainReport stopServer() {
+        return stopServer(false);
+    }
+    
+    public DrainReport stopServer(boolean restarting) {
+        long started = System.nanoTime();
+        long deadline = started + Math.max(0, ModConfig.getInstance().getShutdownDrainMs()) * 1_000_000L;
+        draining = true;
+        if (localEndpoint != null) localEndpoint.stop();
+        
+        if (restarting) {
+            long retryAfterMs = ModConfig.getInstance().getShutdownDrainMs() + 500L;
+            synchronized (restartBuffer) {
+                restartBufferUntil = System.currentTimeMillis() + ModConfig.getInstance().getRestartBufferSeconds() * 1000L;
+            }
+            OutboundFrame notice = OutboundMessages.serverRestarting("Server restarting, reconnect shortly", retryAfterMs);
+            for (ClientSession session : connections.snapshot()) session.send(notice);
+        }
+        
+        boolean drained = awaitDrained(() -> messageExecutor.getPendingCount() == 0 && automationRpc.getPendingCount() == 0, deadline);
+        minecraftBatcher.flush();
+        drained &= awaitDrained(this::outboxesFlushed, deadline);
+        running = false;
+        
+        int inboundDropped = messageExecutor.getPendingCount();
+        int automationsCancelled = automationRpc.getPendingCount();
+        automationRpc.cancelAll();
+        messageExecutor.shutdownNow();
+        
+        long outboundDropped = 0;
+        for (ClientSession session : connections.snapshot()) {
+            outboundDropped += session.getOutbox().size();
+            session.close(restarting ? CLOSE_SERVICE_RESTART : CLOSE_GOING_AWAY,
+                restarting ? "Server restarting" : "Server shutting down");
+            removeSession(session);
+        }
+        outboundWriter.shutdown();
+        
         try {
-            running = false;
-            messageExecutor.shutdown();
-            tickBroadcaster.shutdown();
-            for (WebSocket conn : connections) conn.close(1000, "Server shutting down");
-            connections.clear();
             this.stop(1000);
-            DiscordChatIntegration.LOGGER.info("Discord WebSocket server stopped");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        
+        DrainReport report = new DrainReport((System.nanoTime() - started) / 1_000_000, !drained, inboundDropped,
+            drainRejected.get(), outboundDropped, automationsCancelled);
+        if (report.isClean()) {
+            DiscordChatIntegration.LOGGER.info("Discord WebSocket server stopped, {}", report);
+        } else {
+            DiscordChatIntegration.LOGGER.warn("Discord WebSocket server stopped, {}", report);
+        }
+        return report;
+    }
+    
+    private boolean outboxesFlushed() {
+        for (ClientSession session : connections.snapshot()) {
+            if (session.isOpen() && (!session.getOutbox().isEmpty() || session.getTransport().hasBufferedData())) return false;
+        }
+        return true;
+    }
+    
+    private static boolean awaitDrained(BooleanSupplier drained, long deadline) {
+        while (!drained.getAsBoolean()) {
+            if (System.nanoTime() >= deadline) return false;
+            try {
+                Thread.sleep(DRAIN_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
     }
     
     private void showConnectionNotification(boolean connected) {
@@ -380,14 +816,35 @@ public class DiscordWebSocketServer extends WebSocketServer {
         public final boolean tickSync;
         public final String syncGroup;
         public final long targetTick;
+        public final long sessionId;
         
         public ChatMessage(String author, String content, String messageId, boolean tickSync, String syncGroup, long targetTick) {
+            this(author, content, messageId, tickSync, syncGroup, targetTick, 0);
+        }
+        
+        public ChatMessage(String author, String content, String messageId, boolean tickSync, String syncGroup,
+                           long targetTick, long sessionId) {
             this.author = author;
             this.content = content;
             this.messageId = messageId;
             this.tickSync = tickSync;
             this.syncGroup = syncGroup != null ? syncGroup : "none";
             this.targetTick = targetTick;
+            this.sessionId = sessionId;
+        }
+        
+        public ChatMessage forSession(long sessionId) {
+            return new ChatMessage(author, content, messageId, tickSync, syncGroup, targetTick, sessionId);
+        }
+        
+        /**
+         * The lane this message is processed on. Messages in a sync group share one lane across every connection,
+         * and that overrides ordering per connection: a connection that alternates between grouped and ungrouped
+         * messages, or between groups, only gets submission order within each lane, not across them. Clients
+         * that need strict ordering should keep to one sync group per connection.
+         */
+        public Object orderingKey() {
+            return "none".equals(syncGroup) ? (Object) sessionId : "group:" + syncGroup;
         }
     }
 }
@@ -0,0 +1,35 @@
+package discord.chat.mc.websocket;
+
+/**
+ * What a server left behind when it stopped: inbound messages still queued or refused while draining,
+ * outbound frames that never reached a socket, and automation requests that had to be cancelled.
+ */
+public class DrainReport {
+    public final long elapsedMs;
+    public final boolean deadlineReached;
+    public final int inboundDropped;
+    public final long inboundRejected;
+    public final long outboundDropped;
+    public final int automationsCancelled;
+    
+    public DrainReport(long elapsedMs, boolean deadlineReached, int inboundDropped, long inboundRejected,
+                       long outboundDropped, int automationsCancelled) {
+        this.elapsedMs = elapsedMs;
+        this.deadlineReached = deadlineReached;
+        this.inboundDropped = inboundDropped;
+        this.inboundRejected = inboundRejected;
+        this.outboundDropped = outboundDropped;
+        this.automationsCancelled = automationsCancelled;
+    }
+    
+    public boolean isClean() {
+        return inboundDropped == 0 && inboundRejected == 0 && outboundDropped == 0 && automationsCancelled == 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("drained in %d ms%s: %d inbound dropped, %d inbound rejected, %d outbound dropped, %d automation request(s) cancelled",
+            elapsedMs, deadlineReached ? " (deadline reached)" : "", inboundDropped, inboundRejected, outboundDropped,
+            automationsCancelled);
+    }
+}
@@ -0,0 +1,204 @@
+package discord.chat.mc.websocket;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Writes flat protocol messages straight into reused buffers: one writer per platform thread, or a small
+ * shared pool for short-lived virtual threads. The JSON form is always produced; the {@link BinaryCodec} form
+ * is produced alongside it while any binary client is attached. Only the final payload arrays handed to
+ * {@link OutboundFrame} are allocated per message.
+ */
+public final class FrameWriter {
+    private static final ThreadLocal<FrameWriter> LOCAL = ThreadLocal.withInitial(FrameWriter::new);
+    private static final ArrayBlockingQueue<FrameWriter> SHARED = new ArrayBlockingQueue<>(16);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final StringBuilder json = new StringBuilder(256);
+    private byte[] utf8 = new byte[512];
+    private byte[] binary = new byte[256];
+    private int binaryLength;
+    private boolean writeBinary;
+    private boolean pooled;
+    
+    private FrameWriter() {}
+    
+    public static FrameWriter begin(String type) {
+        FrameWriter writer = acquire();
+        writer.json.setLength(0);
+        writer.json.append("{\"type\":");
+        writer.string(type);
+        
+        int tag = BinaryCodec.typeTag(type);
+        writer.writeBinary = tag >= 0 && BinaryCodec.hasBinarySessions();
+        writer.binaryLength = 0;
+        if (writer.writeBinary) writer.putByte(tag);
+        return writer;
+    }
+    
+    private static FrameWriter acquire() {
+        if (!Thread.currentThread().isVirtual()) return LOCAL.get();
+        
+        FrameWriter writer = SHARED.poll();
+        if (writer == null) {
+            writer = new FrameWriter();
+            writer.pooled = true;
+        }
+        return writer;
+    }
+    
+    public FrameWriter field(String name, String value) {
+        name(name);
+        if (value == null) {
+            json.append("null");
+        } else {
+            string(value);
+        }
+        if (writeBinary && value != null && binaryFieldTag(name, BinaryCodec.KIND_STRING)) putString(value);
+        return this;
+    }
+    
+    public FrameWriter field(String name, long value) {
+        name(name);
+        json.append(value);
+        if (writeBinary && binaryFieldTag(name, BinaryCodec.KIND_VARINT)) putVarLong((value << 1) ^ (value >> 63));
+        return this;
+    }
+    
+    public FrameWriter field(String name, boolean value) {
+        name(name);
+        json.append(value);
+        if (writeBinary && binaryFieldTag(name, BinaryCodec.KIND_BOOLEAN)) putByte(value ? 1 : 0);
+        return this;
+    }
+    
+    public FrameWriter field(String name, List<String> values) {
+        name(name);
+        json.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) json.append(',');
+            string(values.get(i));
+        }
+        json.append(']');
+        
+        if (writeBinary && binaryFieldTag(name, BinaryCodec.KIND_STRING_LIST)) {
+            putVarLong(values.size());
+            for (String value : values) putString(value);
+        }
+        return this;
+    }
+    
+    public OutboundFrame finish() {
+        json.append('}');
+        byte[] binaryPayload = writeBinary ? Arrays.copyOf(binary, binaryLength) : null;
+        OutboundFrame frame = OutboundFrame.encoded(encodeJson(), binaryPayload);
+        if (pooled) SHARED.offer(this);
+        return frame;
+    }
+    
+    private void name(String name) {
+        json.append(',');
+        string(name);
+        json.append(':');
+    }
+    
+    private void string(String value) {
+        json.append('"');
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                case '\b' -> json.append("\\b");
+                case '\f' -> json.append("\\f");
+                default -> {
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        json.append("\\u").append(HEX[c >> 12]).append(HEX[(c >> 8) & 0xF])
+                            .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+    
+    private byte[] encodeJson() {
+        int len = json.length();
+        if (utf8.length < len * 3) utf8 = new byte[Math.max(len * 3, utf8.length * 2)];
+        int pos = utf8(json, utf8, 0);
+        return Arrays.copyOf(utf8, pos);
+    }
+    
+    private boolean binaryFieldTag(String name, int kind) {
+        int id = BinaryCodec.fieldId(name);
+        if (id < 0) {
+            writeBinary = false;
+            return false;
+        }
+        putByte((id << 2) | kind);
+        return true;
+    }
+    
+    private void putByte(int value) {
+        ensureBinary(1);
+        binary[binaryLength++] = (byte) value;
+    }
+    
+    private void putVarLong(long value) {
+        ensureBinary(10);
+        while ((value & ~0x7FL) != 0) {
+            binary[binaryLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        binary[binaryLength++] = (byte) value;
+    }
+    
+    private void putString(String value) {
+        int maxBytes = value.length() * 3;
+        ensureBinary(maxBytes + 10);
+        int start = binaryLength + 5;
+        int end = utf8(value, binary, start);
+        int length = end - start;
+        
+        putVarLong(length);
+        System.arraycopy(binary, start, binary, binaryLength, length);
+        binaryLength += length;
+    }
+    
+    private void ensureBinary(int extra) {
+        if (binaryLength + extra > binary.length) {
+            binary = Arrays.copyOf(binary, Math.max(binaryLength + extra, binary.length * 2));
+        }
+    }
+    
+    private static int utf8(CharSequence text, byte[] out, int pos) {
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (cp >> 18));
+                out[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[pos++] = (byte) '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,378 @@
+package discord.chat.mc.websocket;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass {@link JsonReader} and {@link BinaryCodec.Reader} decoders for the built-in inbound message
+ * types. Fields are read straight into the target values; anything unrecognised is skipped without being
+ * materialised. String values longer than {@link #MAX_FIELD_LENGTH} encoded characters (bytes on the binary
+ * protocol) are never copied out of the frame and decode as if the field were absent.
+ */
+public final class InboundMessages {
+    public static final int MAX_FIELD_LENGTH = 8192;
+    /** What {@link BoundedJsonSource} substitutes for an oversized string literal. */
+    static final String OVERSIZED = "\0";
+    
+    public static final MessageDispatcher.MessageDecoder<Void> EMPTY = reader -> null;
+    public static final MessageDispatcher.BinaryMessageDecoder<Void> EMPTY_BINARY = reader -> null;
+    
+    private InboundMessages() {}
+    
+    public static DiscordWebSocketServer.ChatMessage readChatMessage(JsonReader reader) throws IOException {
+        String author = "Unknown";
+        String content = "";
+        String messageId = null;
+        boolean tickSync = false;
+        String syncGroup = "none";
+        long targetTick = -1;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "author" -> author = readString(reader, author);
+                case "content" -> content = readString(reader, content);
+                case "messageId" -> messageId = readString(reader, null);
+                case "tickSync" -> tickSync = readBoolean(reader);
+                case "syncGroup" -> syncGroup = readString(reader, syncGroup);
+                case "targetTick" -> targetTick = readLong(reader, targetTick);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new DiscordWebSocketServer.ChatMessage(author, content, messageId, tickSync, syncGroup, targetTick);
+    }
+    
+    public static DiscordWebSocketServer.ChatMessage readChatMessage(BinaryCodec.Reader reader) {
+        String author = "Unknown";
+        String content = "";
+        String messageId = null;
+        boolean tickSync = false;
+        String syncGroup = "none";
+        long targetTick = -1;
+        
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case "author" -> author = orDefault(reader.readString(), author);
+                case "content" -> content = orDefault(reader.readString(), content);
+                case "messageId" -> messageId = reader.readString();
+                case "tickSync" -> tickSync = reader.readBoolean();
+                case "syncGroup" -> syncGroup = orDefault(reader.readString(), syncGroup);
+                case "targetTick" -> targetTick = reader.readLong(targetTick);
+                default -> reader.skip();
+            }
+        }
+        return new DiscordWebSocketServer.ChatMessage(author, content, messageId, tickSync, syncGroup, targetTick);
+    }
+    
+    public static String readSyncGroup(JsonReader reader) throws IOException {
+        String syncGroup = "none";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("syncGroup".equals(reader.nextName())) {
+                syncGroup = readString(reader, syncGroup);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return syncGroup;
+    }
+    
+    public static String readSyncGroup(BinaryCodec.Reader reader) {
+        String syncGroup = "none";
+        String field;
+        while ((field = reader.nextField()) != null) {
+            if ("syncGroup".equals(field)) {
+                syncGroup = orDefault(reader.readString(), syncGroup);
+            } else {
+                reader.skip();
+            }
+        }
+        return syncGroup;
+    }
+    
+    public static Long readTimestamp(JsonReader reader) throws IOException {
+        long timestamp = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("timestamp".equals(reader.nextName())) {
+                timestamp = readLong(reader, timestamp);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return timestamp >= 0 ? timestamp : null;
+    }
+    
+    public static Long readTimestamp(BinaryCodec.Reader reader) {
+        long timestamp = -1;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            if ("timestamp".equals(field)) {
+                timestamp = reader.readLong(timestamp);
+            } else {
+                reader.skip();
+            }
+        }
+        return timestamp >= 0 ? timestamp : null;
+    }
+    
+    public static AutomationsList readAutomationsList(JsonReader reader) throws IOException {
+        String requestId = null;
+        List<String> names = null;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("automations".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                names = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String value = readString(reader, null);
+                    if (value != null) names.add(value);
+                }
+                reader.endArray();
+            } else if ("requestId".equals(name)) {
+                requestId = readString(reader, null);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new AutomationsList(requestId, names);
+    }
+    
+    public static AutomationsList readAutomationsList(BinaryCodec.Reader reader) {
+        String requestId = null;
+        List<String> names = null;
+        
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case "automations" -> names = reader.readStringList();
+                case "requestId" -> requestId = reader.readString();
+                default -> reader.skip();
+            }
+        }
+        return new AutomationsList(requestId, names);
+    }
+    
+    public static List<String> readCapabilities(JsonReader reader) throws IOException {
+        return readStringListField(reader, "capabilities");
+    }
+    
+    public static List<String> readCapabilities(BinaryCodec.Reader reader) {
+        return readStringListField(reader, "capabilities");
+    }
+    
+    private static List<String> readStringListField(JsonReader reader, String name) throws IOException {
+        List<String> values = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (name.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                values = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String value = readString(reader, null);
+                    if (value != null) values.add(value);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return values;
+    }
+    
+    private static List<String> readStringListField(BinaryCodec.Reader reader, String name) {
+        List<String> values = null;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            if (name.equals(field)) {
+                values = reader.readStringList();
+            } else {
+                reader.skip();
+            }
+        }
+        return values;
+    }
+    
+    public static Subscription readSubscription(JsonReader reader) throws IOException {
+        List<String> topics = null;
+        String filter = null;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("topics".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                topics = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String value = readString(reader, null);
+                    if (value != null) topics.add(value);
+                }
+                reader.endArray();
+            } else if ("filter".equals(name)) {
+                filter = readString(reader, null);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Subscription(topics, filter);
+    }
+    
+    public static Subscription readSubscription(BinaryCodec.Reader reader) {
+        List<String> topics = null;
+        String filter = null;
+        
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case "topics" -> topics = reader.readStringList();
+                case "filter" -> filter = reader.readString();
+                default -> reader.skip();
+            }
+        }
+        return new Subscription(topics, filter);
+    }
+    
+    public static AutomationResult readAutomationResult(JsonReader reader) throws IOException {
+        String requestId = null;
+        String name = null;
+        boolean success = false;
+        String message = "";
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "requestId" -> requestId = readString(reader, null);
+                case "name" -> name = readString(reader, null);
+                case "success" -> success = readBoolean(reader);
+                case "message" -> message = readString(reader, message);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new AutomationResult(requestId, name, success, message);
+    }
+    
+    public static AutomationResult readAutomationResult(BinaryCodec.Reader reader) {
+        String requestId = null;
+        String name = null;
+        boolean success = false;
+        String message = "";
+        
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case "requestId" -> requestId = reader.readString();
+                case "name" -> name = reader.readString();
+                case "success" -> success = reader.readBoolean();
+                case "message" -> message = orDefault(reader.readString(), message);
+                default -> reader.skip();
+            }
+        }
+        return new AutomationResult(requestId, name, success, message);
+    }
+    
+    private static String orDefault(String value, String fallback) {
+        return value != null ? value : fallback;
+    }
+    
+    public static JsonReader open(String message) {
+        return new JsonReader(new BoundedJsonSource(message, MAX_FIELD_LENGTH));
+    }
+    
+    public static String readString(JsonReader reader, String fallback) throws IOException {
+        switch (reader.peek()) {
+            case STRING -> {
+                String value = reader.nextString();
+                return OVERSIZED.equals(value) ? fallback : value;
+            }
+            case NUMBER -> { return reader.nextString(); }
+            case BOOLEAN -> { return String.valueOf(reader.nextBoolean()); }
+            case NULL -> {
+                reader.nextNull();
+                return fallback;
+            }
+            default -> {
+                reader.skipValue();
+                return fallback;
+            }
+        }
+    }
+    
+    public static boolean readBoolean(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BOOLEAN -> { return reader.nextBoolean(); }
+            case STRING -> { return Boolean.parseBoolean(reader.nextString()); }
+            default -> {
+                reader.skipValue();
+                return false;
+            }
+        }
+    }
+    
+    public static long readLong(JsonReader reader, long fallback) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            String value = reader.nextString();
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                try {
+                    return (long) Double.parseDouble(value);
+                } catch (NumberFormatException ignored) {
+                    return fallback;
+                }
+            }
+        }
+        reader.skipValue();
+        return fallback;
+    }
+    
+    public static class AutomationsList {
+        public final String requestId;
+        public final List<String> names;
+        public final boolean included;
+        
+        public AutomationsList(String requestId, List<String> names) {
+            this.requestId = requestId;
+            this.names = names != null ? List.copyOf(names) : List.of();
+            this.included = names != null;
+        }
+    }
+    
+    public static class AutomationResult {
+        public final String requestId;
+        public final String name;
+        public final boolean success;
+        public final String message;
+        
+        public AutomationResult(String requestId, String name, boolean success, String message) {
+            this.requestId = requestId;
+            this.name = name;
+            this.success = success;
+            this.message = message != null ? message : "";
+        }
+    }
+    
+    public static class Subscription {
+        public final List<String> topics;
+        public final String filter;
+        
+        public Subscription(List<String> topics, String filter) {
+            this.topics = topics != null ? topics : List.of();
+            this.filter = filter != null && !filter.isEmpty() ? filter : null;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package discord.chat.mc.websocket;
+
+import discord.chat.mc.DiscordChatIntegration;
+import discord.chat.mc.concurrent.ModExecutors;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryFlag;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serves the mod's protocol over a Unix domain socket for local companion tools, framed as described in
+ * {@link LocalSocketTransport}. Connections skip the HTTP upgrade and WebSocket framing but share sessions,
+ * dispatch and broadcasts with the WebSocket endpoint. Inbound frames may be JSON or binary codec; replies
+ * are JSON.
+ * <p>
+ * The socket is only ever bound inside a directory that nobody but the current user can enter: mode 0700 on
+ * POSIX file systems, an owner-only ACL on Windows. The directory is locked down before the bind, so there is
+ * no window in which another local user can connect; if neither mechanism is available the endpoint refuses
+ * to start.
+ * <p>
+ * Stopping the endpoint only closes the listening socket. Connected clients keep their sessions, and with them
+ * the shutdown drain, until the server closes them like any other session.
+ */
+public class LocalSocketEndpoint {
+    private static final int MAX_FRAME_BYTES = 1 << 20;
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+    
+    private final DiscordWebSocketServer server;
+    private final Path path;
+    private volatile ServerSocketChannel serverChannel;
+    private volatile boolean accepting = false;
+    
+    public LocalSocketEndpoint(DiscordWebSocketServer server, Path path) {
+        this.server = server;
+        this.path = path.toAbsolutePath();
+    }
+    
+    public void start() {
+        try {
+            if (!preparePrivateDirectory(path.getParent()) || !prepareSocketPath()) return;
+            
+            ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.bind(UnixDomainSocketAddress.of(path));
+            serverChannel = channel;
+            accepting = true;
+            ModExecutors.start("Discord-Local-Socket-Acceptor", this::acceptLoop);
+            DiscordChatIntegration.LOGGER.info("Local socket listening at {}", path);
+        } catch (IOException | UnsupportedOperationException e) {
+            DiscordChatIntegration.LOGGER.warn("Could not open local socket at {}: {}", path, e.getMessage());
+        }
+    }
+    
+    private static boolean preparePrivateDirectory(Path directory) throws IOException {
+        boolean existed = Files.exists(directory, LinkOption.NOFOLLOW_LINKS);
+        if (existed && !Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            DiscordChatIntegration.LOGGER.warn("Not opening local socket: {} is not a directory", directory);
+            return false;
+        }
+        
+        Set<String> views = directory.getFileSystem().supportedFileAttributeViews();
+        if (views.contains("posix")) {
+            if (!existed) {
+                Files.createDirectories(directory.getParent());
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            }
+            return checkPrivate(directory, Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS).equals(OWNER_ONLY));
+        }
+        if (views.contains("acl")) {
+            AclFileAttributeView view;
+            if (!existed) {
+                Files.createDirectories(directory);
+                view = Files.getFileAttributeView(directory, AclFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+                view.setAcl(List.of(AclEntry.newBuilder()
+                    .setType(AclEntryType.ALLOW)
+                    .setPrincipal(view.getOwner())
+                    .setPermissions(EnumSet.allOf(AclEntryPermission.class))
+                    .setFlags(AclEntryFlag.FILE_INHERIT, AclEntryFlag.DIRECTORY_INHERIT)
+                    .build()));
+            } else {
+                view = Files.getFileAttributeView(directory, AclFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+            }
+            UserPrincipal owner = view.getOwner();
+            boolean ownerOnly = true;
+            for (AclEntry entry : view.getAcl()) {
+                if (entry.type() == AclEntryType.ALLOW && !entry.principal().equals(owner)) ownerOnly = false;
+            }
+            return checkPrivate(directory, ownerOnly);
+        }
+        
+        DiscordChatIntegration.LOGGER.warn("Not opening local socket: cannot restrict {} to the current user on this file system", directory);
+        return false;
+    }
+    
+    private static boolean checkPrivate(Path directory, boolean ownerOnly) throws IOException {
+        UserPrincipal owner = Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS);
+        if (ownerOnly && owner.equals(currentUser(directory.getParent()))) return true;
+        DiscordChatIntegration.LOGGER.warn("Not opening local socket: {} must belong to the current user and be closed to everyone else",
+            directory);
+        return false;
+    }
+    
+    /**
+     * Resolves the user this process runs as from the owner of a file it creates. Looking up the name from
+     * {@code user.name} can yield a different principal than the one that owns files, such as a bare user name
+     * against the domain-qualified owner on Windows.
+     */
+    private static UserPrincipal currentUser(Path directory) throws IOException {
+        Path probe = Files.createTempFile(directory, ".owner", ".tmp");
+        try {
+            return Files.getOwner(probe, LinkOption.NOFOLLOW_LINKS);
+        } finally {
+            Files.deleteIfExists(probe);
+        }
+    }
+    
+    private boolean prepareSocketPath() throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) return true;
+        if (!Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+            DiscordChatIntegration.LOGGER.warn("Not replacing {} with a local socket: it is not a socket file", path);
+            return false;
+        }
+        
+        try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(path))) {
+            DiscordChatIntegration.LOGGER.warn("Local socket {} is already in use by another instance", path);
+            return false;
+        } catch (IOException stale) {
+            Files.deleteIfExists(path);
+            return true;
+        }
+    }
+    
+    private void acceptLoop() {
+        while (accepting) {
+            SocketChannel client;
+            try {
+                client = serverChannel.accept();
+            } catch (IOException e) {
+                if (accepting) DiscordChatIntegration.LOGGER.warn("Local socket stopped accepting: {}", e.getMessage());
+                return;
+            }
+            ModExecutors.start("Discord-Local-Socket-Reader", () -> serve(client));
+        }
+    }
+    
+    private void serve(SocketChannel channel) {
+        if (!server.admitConnection()) {
+            DiscordChatIntegration.LOGGER.warn("Rejected local socket client: connection limit reached");
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+            return;
+        }
+        
+        LocalSocketTransport transport = new LocalSocketTransport(channel, "local:" + path.getFileName());
+        ClientSession session = server.openSession(transport, false, attached -> {});
+        
+        int code = 1000;
+        try {
+            readLoop(channel, session);
+        } catch (IOException e) {
+            code = 1006;
+            if (channel.isOpen()) {
+                DiscordChatIntegration.LOGGER.warn("Local socket client error: {}", e.getMessage());
+            }
+        } finally {
+            transport.close(code, null);
+            server.disconnectSession(session, code);
+        }
+    }
+    
+    private void readLoop(SocketChannel channel, ClientSession session) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LocalSocketTransport.HEADER_BYTES);
+        while (session.isOpen()) {
+            header.clear();
+            if (!readFully(channel, header, true)) return;
+            header.flip();
+            
+            int length = header.getInt();
+            byte kind = header.get();
+            if (length < 0 || length > MAX_FRAME_BYTES) throw new IOException("Frame length " + length + " out of range");
+            
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, false);
+            payload.flip();
+            
+            if (kind == LocalSocketTransport.KIND_BINARY) {
+                server.receive(session, payload);
+            } else {
+                server.receive(session, StandardCharsets.UTF_8.decode(payload).toString());
+            }
+        }
+    }
+    
+    private static boolean readFully(SocketChannel channel, ByteBuffer buffer, boolean eofAllowed) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (eofAllowed && buffer.position() == 0) return false;
+                throw new EOFException("Connection closed mid-frame");
+            }
+        }
+        return true;
+    }
+    
+    public void stop() {
+        accepting = false;
+        ServerSocketChannel channel = serverChannel;
+        if (channel == null) return;
+        
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {}
+    }
+    
+    public Path getPath() { return path; }
+}
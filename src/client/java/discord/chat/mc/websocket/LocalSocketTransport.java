@@ -0,0 +1,75 @@
+package discord.chat.mc.websocket;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link SessionTransport} over a Unix domain socket. Each message is written as a 4-byte big-endian
+ * payload length, a 1-byte kind ({@link #KIND_TEXT} or {@link #KIND_BINARY}) and the payload. Writes are
+ * serialised with a {@link ReentrantLock} rather than a monitor so a virtual writer thread blocked on the
+ * channel does not pin its carrier.
+ */
+public class LocalSocketTransport implements SessionTransport {
+    public static final byte KIND_TEXT = 0;
+    public static final byte KIND_BINARY = 1;
+    public static final int HEADER_BYTES = 5;
+    
+    private final SocketChannel channel;
+    private final String description;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    private final ReentrantLock writeLock = new ReentrantLock();
+    
+    public LocalSocketTransport(SocketChannel channel, String description) {
+        this.channel = channel;
+        this.description = description;
+    }
+    
+    @Override
+    public boolean isOpen() { return channel.isOpen(); }
+    
+    @Override
+    public boolean hasBufferedData() { return false; }
+    
+    @Override
+    public void send(OutboundFrame frame, boolean binary) {
+        ByteBuffer payload = frame.payload(binary);
+        writeLock.lock();
+        try {
+            header.clear();
+            header.putInt(payload.remaining());
+            header.put(frame.isBinaryFor(binary) ? KIND_BINARY : KIND_TEXT);
+            header.flip();
+            
+            ByteBuffer[] buffers = { header, payload };
+            while (header.hasRemaining() || payload.hasRemaining()) channel.write(buffers);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public void close(int code, String reason) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+    
+    @Override
+    public void abort(String reason) {
+        close(1006, reason);
+    }
+    
+    @Override
+    public boolean supportsHeartbeat() { return false; }
+    
+    @Override
+    public void sendPing() {}
+    
+    @Override
+    public String getRemoteDescription() { return description; }
+}
@@ -0,0 +1,155 @@
+package discord.chat.mc.websocket;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import discord.chat.mc.DiscordChatIntegration;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps inbound protocol message types to their handlers. Built-in verbs are installed from
+ * {@link DiscordWebSocketServer} while the singleton is constructed and stay reserved; other mods can add
+ * their own types through {@link #register} but cannot replace or remove the built-ins.
+ */
+public final class MessageDispatcher {
+    private static final MessageDispatcher INSTANCE = new MessageDispatcher();
+    
+    private final Map<String, Route<?>> routes = new ConcurrentHashMap<>();
+    private final Set<String> reservedTypes;
+    
+    @FunctionalInterface
+    public interface MessageHandler {
+        void handle(ClientSession session, JsonObject message) throws Exception;
+    }
+    
+    @FunctionalInterface
+    public interface MessageDecoder<T> {
+        T decode(JsonReader reader) throws IOException;
+    }
+    
+    @FunctionalInterface
+    public interface BinaryMessageDecoder<T> {
+        T decode(BinaryCodec.Reader reader);
+    }
+    
+    @FunctionalInterface
+    public interface TypedMessageHandler<T> {
+        void handle(ClientSession session, T message) throws Exception;
+    }
+    
+    /**
+     * Registration handle for the built-in verbs, only available while the dispatcher is being constructed.
+     */
+    public interface BuiltIns {
+        <T> void register(String type, MessageDecoder<T> decoder, BinaryMessageDecoder<T> binaryDecoder,
+                          TypedMessageHandler<T> handler);
+    }
+    
+    private MessageDispatcher() {
+        DiscordWebSocketServer.registerBuiltInHandlers(this::add);
+        this.reservedTypes = Set.copyOf(routes.keySet());
+    }
+    
+    public static MessageDispatcher getInstance() { return INSTANCE; }
+    
+    public void register(String type, MessageHandler handler) {
+        if (handler == null) throw new IllegalArgumentException("Message handler is required");
+        register(type, reader -> JsonParser.parseReader(reader).getAsJsonObject(), handler::handle);
+    }
+    
+    public <T> void register(String type, MessageDecoder<T> decoder, TypedMessageHandler<T> handler) {
+        register(type, decoder, null, handler);
+    }
+    
+    public <T> void register(String type, MessageDecoder<T> decoder, BinaryMessageDecoder<T> binaryDecoder,
+                             TypedMessageHandler<T> handler) {
+        if (isReserved(type)) {
+            throw new IllegalArgumentException("Message type is reserved for a built-in handler: " + type);
+        }
+        add(type, decoder, binaryDecoder, handler);
+    }
+    
+    private <T> void add(String type, MessageDecoder<T> decoder, BinaryMessageDecoder<T> binaryDecoder,
+                         TypedMessageHandler<T> handler) {
+        if (type == null || type.isEmpty() || decoder == null || handler == null) {
+            throw new IllegalArgumentException("Message type, decoder and handler are required");
+        }
+        if (routes.putIfAbsent(type, new Route<>(decoder, binaryDecoder, handler)) != null) {
+            throw new IllegalStateException("A handler is already registered for message type: " + type);
+        }
+    }
+    
+    public boolean unregister(String type) {
+        if (isReserved(type)) {
+            throw new IllegalArgumentException("Message type is reserved for a built-in handler: " + type);
+        }
+        return type != null && routes.remove(type) != null;
+    }
+    
+    public boolean isReserved(String type) {
+        return type != null && reservedTypes.contains(type);
+    }
+    
+    public Route<?> resolve(String type) {
+        return type != null ? routes.get(type) : null;
+    }
+    
+    public Set<String> getRegisteredTypes() { return Set.copyOf(routes.keySet()); }
+    
+    /**
+     * Reads only as far as the top-level "type" field, skipping any fields in front of it without
+     * building them, so unknown messages can be dropped before the body is parsed.
+     */
+    public static String peekType(String message) {
+        try (JsonReader reader = InboundMessages.open(message)) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) return null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("type".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                    String type = reader.nextString();
+                    return InboundMessages.OVERSIZED.equals(type) ? null : type;
+                }
+                reader.skipValue();
+            }
+        } catch (IOException | IllegalStateException e) {
+            return null;
+        }
+        return null;
+    }
+    
+    public static final class Route<T> {
+        private final MessageDecoder<T> decoder;
+        private final BinaryMessageDecoder<T> binaryDecoder;
+        private final TypedMessageHandler<T> handler;
+        
+        private Route(MessageDecoder<T> decoder, BinaryMessageDecoder<T> binaryDecoder, TypedMessageHandler<T> handler) {
+            this.decoder = decoder;
+            this.binaryDecoder = binaryDecoder;
+            this.handler = handler;
+        }
+        
+        public boolean acceptsBinary() { return binaryDecoder != null; }
+        
+        public void dispatch(ClientSession session, String message) {
+            try (JsonReader reader = InboundMessages.open(message)) {
+                handler.handle(session, decoder.decode(reader));
+            } catch (Exception e) {
+                DiscordChatIntegration.LOGGER.error("Error parsing WebSocket message: {}", e.getMessage());
+            }
+        }
+        
+        public void dispatch(ClientSession session, ByteBuffer message) {
+            try {
+                handler.handle(session, binaryDecoder.decode(new BinaryCodec.Reader(message)));
+            } catch (Exception e) {
+                DiscordChatIntegration.LOGGER.error("Error parsing binary WebSocket message: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package discord.chat.mc.websocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Collects forwarded chat lines for a short window so a burst (join MOTD, plugin spam) goes out as one
+ * {@code minecraft_batch} frame per client instead of one frame per line.
+ */
+public class MinecraftMessageBatcher {
+    public static final String CAPABILITY = "minecraft_batch";
+    
+    private final ScheduledExecutorService scheduler;
+    private final long windowMs;
+    private final int maxMessages;
+    private final BiConsumer<List<String>, List<String>> sink;
+    private List<String> authors = new ArrayList<>();
+    private List<String> contents = new ArrayList<>();
+    private boolean flushScheduled = false;
+    
+    public MinecraftMessageBatcher(ScheduledExecutorService scheduler, long windowMs, int maxMessages,
+                                   BiConsumer<List<String>, List<String>> sink) {
+        this.scheduler = scheduler;
+        this.windowMs = Math.max(0, windowMs);
+        this.maxMessages = Math.max(1, maxMessages);
+        this.sink = sink;
+    }
+    
+    public void add(String author, String content) {
+        boolean flushNow;
+        synchronized (this) {
+            authors.add(author);
+            contents.add(content);
+            flushNow = windowMs == 0 || authors.size() >= maxMessages;
+            if (!flushNow && !flushScheduled) {
+                flushScheduled = true;
+                try {
+                    scheduler.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    flushScheduled = false;
+                    flushNow = true;
+                }
+            }
+        }
+        if (flushNow) flush();
+    }
+    
+    public void flush() {
+        List<String> batchAuthors;
+        List<String> batchContents;
+        synchronized (this) {
+            flushScheduled = false;
+            if (authors.isEmpty()) return;
+            batchAuthors = authors;
+            batchContents = contents;
+            authors = new ArrayList<>();
+            contents = new ArrayList<>();
+        }
+        sink.accept(batchAuthors, batchContents);
+    }
+}
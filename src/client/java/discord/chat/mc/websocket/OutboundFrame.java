@@ -0,0 +1,48 @@
+package discord.chat.mc.websocket;
+
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.TextFrame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A protocol message encoded once and shared by every connection it is sent to. Each socket gets its own
+ * lightweight frame header over a view of the same payload bytes, so fan-out never re-encodes or copies.
+ */
+public final class OutboundFrame {
+    private final ByteBuffer text;
+    private final ByteBuffer binary;
+    
+    private OutboundFrame(byte[] utf8, byte[] binary) {
+        this.text = ByteBuffer.wrap(utf8);
+        this.binary = binary != null ? ByteBuffer.wrap(binary) : null;
+    }
+    
+    public static OutboundFrame text(String json) {
+        return new OutboundFrame(json.getBytes(StandardCharsets.UTF_8), null);
+    }
+    
+    static OutboundFrame encoded(byte[] utf8, byte[] binary) {
+        return new OutboundFrame(utf8, binary);
+    }
+    
+    public Framedata toFramedata(boolean binaryClient) {
+        DataFrame frame = isBinaryFor(binaryClient) ? new BinaryFrame() : new TextFrame();
+        frame.setPayload(payload(binaryClient));
+        frame.setFin(true);
+        return frame;
+    }
+    
+    public boolean isBinaryFor(boolean binaryClient) {
+        return binaryClient && binary != null;
+    }
+    
+    public ByteBuffer payload(boolean binaryClient) {
+        return isBinaryFor(binaryClient) ? binary.duplicate() : text.duplicate();
+    }
+    
+    public int size() { return text.remaining(); }
+}
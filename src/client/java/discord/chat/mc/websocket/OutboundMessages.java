@@ -0,0 +1,83 @@
+package discord.chat.mc.websocket;
+
+import java.util.List;
+
+/**
+ * Encoders for every message the mod sends to Discord clients.
+ */
+public final class OutboundMessages {
+    private OutboundMessages() {}
+    
+    public static OutboundFrame connectionStatus(String status, String message, String playerName) {
+        FrameWriter writer = FrameWriter.begin("connection_status")
+            .field("status", status)
+            .field("message", message);
+        if (playerName != null) writer.field("playerName", playerName);
+        return writer.finish();
+    }
+    
+    public static OutboundFrame tickUpdate(long tick) {
+        return FrameWriter.begin("tick_update").field("tick", tick).finish();
+    }
+    
+    public static OutboundFrame tickAnchor(long tick, long nanos, long tickRateMillis) {
+        return FrameWriter.begin("tick_anchor")
+            .field("tick", tick)
+            .field("nanos", nanos)
+            .field("tickRateMillis", tickRateMillis)
+            .finish();
+    }
+    
+    public static OutboundFrame playerInfo(String name, boolean inWorld, boolean inMultiplayer, long serverTick) {
+        FrameWriter writer = FrameWriter.begin("player_info")
+            .field("name", name)
+            .field("inWorld", inWorld)
+            .field("inMultiplayer", inMultiplayer);
+        if (inWorld) writer.field("serverTick", serverTick);
+        return writer.finish();
+    }
+    
+    public static OutboundFrame minecraftMessage(String author, String content) {
+        return FrameWriter.begin("minecraft_message").field("author", author).field("content", content).finish();
+    }
+    
+    public static OutboundFrame minecraftBatch(List<String> authors, List<String> contents) {
+        return FrameWriter.begin("minecraft_batch").field("authors", authors).field("contents", contents).finish();
+    }
+    
+    public static OutboundFrame subscriptions(List<String> topics) {
+        return FrameWriter.begin("subscriptions").field("topics", topics).finish();
+    }
+    
+    public static OutboundFrame error(String code, String message, String rejectedType) {
+        FrameWriter writer = FrameWriter.begin("error").field("code", code).field("message", message);
+        if (rejectedType != null) writer.field("rejectedType", rejectedType);
+        return writer.finish();
+    }
+    
+    public static OutboundFrame serverRestarting(String message, long retryAfterMs) {
+        return FrameWriter.begin("server_restarting").field("message", message).field("retryAfterMs", retryAfterMs).finish();
+    }
+    
+    public static OutboundFrame ping(long timestamp) {
+        return FrameWriter.begin("ping").field("timestamp", timestamp).finish();
+    }
+    
+    public static OutboundFrame pong(Long timestamp) {
+        FrameWriter writer = FrameWriter.begin("pong");
+        if (timestamp != null) writer.field("timestamp", timestamp.longValue());
+        return writer.finish();
+    }
+    
+    public static OutboundFrame getAutomations(String requestId) {
+        return FrameWriter.begin("get_automations").field("requestId", requestId).finish();
+    }
+    
+    public static OutboundFrame runAutomation(String requestId, String name) {
+        return FrameWriter.begin("run_automation").field("requestId", requestId).field("name", name).finish();
+    }
+    
+    public static OutboundFrame stopAutomation(String requestId) {
+        return FrameWriter.begin("stop_automation").field("requestId", requestId).finish();
+    }
+}
@@ -0,0 +1,40 @@
+package discord.chat.mc.websocket;
+
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.minecraft.client.Minecraft;
+
+import java.util.Objects;
+
+/**
+ * Pushes player identity to attached Discord clients as soon as it changes, driven by the play
+ * connection lifecycle instead of per-connection polling.
+ */
+public class SessionStatePublisher {
+    private static final SessionStatePublisher INSTANCE = new SessionStatePublisher();
+    
+    private volatile String lastPlayerName;
+    private volatile boolean lastInWorld;
+    private boolean registered = false;
+    
+    public static SessionStatePublisher getInstance() { return INSTANCE; }
+    
+    public synchronized void register() {
+        if (registered) return;
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> publish(client, true));
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> publish(client, false));
+        registered = true;
+    }
+    
+    private void publish(Minecraft client, boolean inWorld) {
+        DiscordWebSocketServer server = DiscordWebSocketServer.getInstance();
+        if (server == null || !server.isRunning()) return;
+        
+        String playerName = server.getPlayerName();
+        if (inWorld == lastInWorld && Objects.equals(playerName, lastPlayerName)) return;
+        lastPlayerName = playerName;
+        lastInWorld = inWorld;
+        
+        boolean inMultiplayer = inWorld && client != null && !client.isSingleplayer();
+        server.publishPlayerState(playerName, inWorld, inMultiplayer);
+    }
+}
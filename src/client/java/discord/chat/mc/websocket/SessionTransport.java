@@ -0,0 +1,23 @@
+package discord.chat.mc.websocket;
+
+/**
+ * The connection a {@link ClientSession} is attached through. Sessions, outboxes and message dispatch only
+ * talk to this, so every endpoint shares the same protocol handling.
+ */
+public interface SessionTransport {
+    boolean isOpen();
+    
+    boolean hasBufferedData();
+    
+    void send(OutboundFrame frame, boolean binary);
+    
+    void close(int code, String reason);
+    
+    void abort(String reason);
+    
+    boolean supportsHeartbeat();
+    
+    void sendPing();
+    
+    String getRemoteDescription();
+}
@@ -0,0 +1,134 @@
+package discord.chat.mc.websocket;
+
+import discord.chat.mc.config.ModConfig;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.minecraft.client.Minecraft;
+
+/**
+ * Publishes the game tick from the client tick loop. Clients that announce the {@code tick_anchor}
+ * capability get an anchor (tick, monotonic nanos, measured rate) and extrapolate from it; a new anchor
+ * is only sent when the measured rate changes or the extrapolation drifts. Other clients keep receiving
+ * {@code tick_update} every {@value #LEGACY_INTERVAL_TICKS} ticks.
+ */
+public class TickPublisher {
+    public static final String CAPABILITY = "tick_anchor";
+    
+    private static final TickPublisher INSTANCE = new TickPublisher();
+    private static final int LEGACY_INTERVAL_TICKS = 10;
+    private static final int RATE_WINDOW_TICKS = 20;
+    private static final double RATE_SMOOTHING = 0.3;
+    private static final double NOMINAL_RATE = 20.0;
+    private static final long STALL_NANOS = 1_000_000_000L;
+    
+    private long windowStartTick = -1;
+    private long windowStartNanos;
+    private double measuredRate = NOMINAL_RATE;
+    private int ticksSinceLegacyUpdate = 0;
+    private volatile Anchor anchor;
+    private boolean registered = false;
+    
+    public static TickPublisher getInstance() { return INSTANCE; }
+    
+    public synchronized void register() {
+        if (registered) return;
+        ClientTickEvents.END_CLIENT_TICK.register(this::onEndTick);
+        registered = true;
+    }
+    
+    private void onEndTick(Minecraft client) {
+        if (client.level == null) {
+            reset();
+            return;
+        }
+        
+        long tick = client.level.getGameTime();
+        long now = System.nanoTime();
+        measureRate(tick, now);
+        
+        DiscordWebSocketServer server = DiscordWebSocketServer.getInstance();
+        if (server == null || !server.isRunning() || server.getConnectionCount() == 0) {
+            anchor = null;
+            return;
+        }
+        
+        Anchor current = anchor;
+        if (current == null || needsReanchor(current, tick, now)) {
+            current = new Anchor(tick, now, measuredRate);
+            anchor = current;
+            server.publishTickAnchor(current);
+        }
+        
+        if (++ticksSinceLegacyUpdate >= LEGACY_INTERVAL_TICKS) {
+            ticksSinceLegacyUpdate = 0;
+            server.publishLegacyTick(tick);
+        }
+    }
+    
+    private void measureRate(long tick, long now) {
+        if (windowStartTick < 0 || tick < windowStartTick) {
+            startWindow(tick, now);
+            return;
+        }
+        
+        long elapsedTicks = tick - windowStartTick;
+        if (measuredRate == 0 && elapsedTicks > 0) {
+            measuredRate = NOMINAL_RATE;
+            startWindow(tick, now);
+            return;
+        }
+        
+        long elapsedNanos = now - windowStartNanos;
+        if (elapsedTicks < RATE_WINDOW_TICKS && elapsedNanos < STALL_NANOS) return;
+        
+        if (elapsedTicks == 0) {
+            measuredRate = 0;
+        } else if (elapsedNanos > 0) {
+            double windowRate = elapsedTicks * 1_000_000_000.0 / elapsedNanos;
+            measuredRate += RATE_SMOOTHING * (windowRate - measuredRate);
+        }
+        startWindow(tick, now);
+    }
+    
+    private void startWindow(long tick, long now) {
+        windowStartTick = tick;
+        windowStartNanos = now;
+    }
+    
+    private boolean needsReanchor(Anchor current, long tick, long now) {
+        ModConfig config = ModConfig.getInstance();
+        double drift = Math.abs(tick - current.predictTick(now));
+        if (drift > config.getTickAnchorDriftTicks()) return true;
+        
+        double rateChange = Math.abs(measuredRate - current.rate) / Math.max(current.rate, 1.0);
+        return rateChange > config.getTickAnchorRateTolerance();
+    }
+    
+    private void reset() {
+        windowStartTick = -1;
+        measuredRate = NOMINAL_RATE;
+        ticksSinceLegacyUpdate = 0;
+        anchor = null;
+    }
+    
+    public Anchor getAnchor() { return anchor; }
+    
+    public static class Anchor {
+        public final long tick;
+        public final long nanos;
+        public final double rate;
+        
+        public Anchor(long tick, long nanos, double rate) {
+            this.tick = tick;
+            this.nanos = nanos;
+            this.rate = rate;
+        }
+        
+        public double predictTick(long atNanos) {
+            return tick + (atNanos - nanos) * rate / 1_000_000_000.0;
+        }
+        
+        public long getRateMillis() {
+            return Math.round(rate * 1000);
+        }
+    }
+}
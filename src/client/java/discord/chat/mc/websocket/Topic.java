@@ -0,0 +1,40 @@
+package discord.chat.mc.websocket;
+
+import java.util.regex.Pattern;
+
+/**
+ * Broadcast streams a session can subscribe to. Sessions receive every topic until their first
+ * {@code subscribe}, which replaces that default with the topics it names.
+ */
+public enum Topic {
+    CHAT("chat"),
+    SYSTEM("system"),
+    TICKS("ticks"),
+    PLAYER_INFO("player_info"),
+    AUTOMATION_RESULTS("automation_results");
+    
+    private static final Topic[] VALUES = values();
+    private static final Pattern CHAT_LINE = Pattern.compile("^<[^<>\\s]+> ");
+    
+    private final String wireName;
+    
+    Topic(String wireName) {
+        this.wireName = wireName;
+    }
+    
+    public String getWireName() { return wireName; }
+    
+    public static Topic fromWireName(String name) {
+        if (name == null) return null;
+        for (Topic topic : VALUES) {
+            if (topic.wireName.equalsIgnoreCase(name)) return topic;
+        }
+        return null;
+    }
+    
+    public static Topic classifyLine(String content) {
+        return content != null && CHAT_LINE.matcher(content).find() ? CHAT : SYSTEM;
+    }
+    
+    static int count() { return VALUES.length; }
+}
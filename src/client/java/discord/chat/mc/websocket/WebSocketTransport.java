@@ -0,0 +1,53 @@
+package discord.chat.mc.websocket;
+
+import org.java_websocket.WebSocket;
+
+import java.net.InetSocketAddress;
+
+/**
+ * {@link SessionTransport} over a Java-WebSocket connection.
+ */
+public class WebSocketTransport implements SessionTransport {
+    private final WebSocket conn;
+    
+    public WebSocketTransport(WebSocket conn) {
+        this.conn = conn;
+    }
+    
+    @Override
+    public boolean isOpen() { return conn.isOpen(); }
+    
+    @Override
+    public boolean hasBufferedData() { return conn.hasBufferedData(); }
+    
+    @Override
+    public void send(OutboundFrame frame, boolean binary) {
+        conn.sendFrame(frame.toFramedata(binary));
+    }
+    
+    @Override
+    public void close(int code, String reason) {
+        conn.close(code, reason);
+    }
+    
+    @Override
+    public void abort(String reason) {
+        conn.closeConnection(1006, reason);
+    }
+    
+    @Override
+    public boolean supportsHeartbeat() { return true; }
+    
+    @Override
+    public void sendPing() {
+        if (conn.isOpen()) conn.sendPing();
+    }
+    
+    @Override
+    public String getRemoteDescription() {
+        InetSocketAddress address = conn.getRemoteSocketAddress();
+        return address != null ? address.toString() : "websocket";
+    }
+    
+    public WebSocket getConnection() { return conn; }
+}
@@ -0,0 +1,48 @@
+package discord.chat.mc.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChatLineParserTest {
+    private final ChatLineParser parser = new ChatLineParser(List.of("<{sender}> {message}", "[{rank}] {sender} » {message}"));
+    
+    @Test
+    void parsesVanillaChat() {
+        ChatLineParser.ParsedLine line = parser.parse("<Steve> hello there");
+        assertEquals("Steve", line.sender);
+        assertEquals("hello there", line.body);
+    }
+    
+    @Test
+    void parsesRankedChat() {
+        ChatLineParser.ParsedLine line = parser.parse("[Admin] Steve » hi");
+        assertEquals("Steve", line.sender);
+        assertEquals("hi", line.body);
+    }
+    
+    @Test
+    void keepsSeparatorsInsideTheBody() {
+        ChatLineParser.ParsedLine line = parser.parse("[Owner] [VIP] Steve » a » b");
+        assertEquals("Steve", line.sender);
+        assertEquals("a » b", line.body);
+    }
+    
+    @Test
+    void leavesOtherLinesUnparsed() {
+        assertNull(parser.parse("[Server] hi everyone"));
+        assertNull(parser.parse("Steve joined the game"));
+        assertNull(parser.parse("<Steve hello"));
+        assertNull(parser.parse("[Admin] Steve hi"));
+    }
+    
+    @Test
+    void ignoresTemplatesWithoutSenderAndMessage() {
+        ChatLineParser partial = new ChatLineParser(List.of("{sender}: hi", "[{rank}] {message}"));
+        assertNull(partial.parse("Steve: hi"));
+        assertNull(partial.parse("[Admin] hi"));
+    }
+}
@@ -0,0 +1,110 @@
+package discord.chat.mc.chat;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the echo check {@link ChatHandler} runs for every chat line, parsing the line with
+ * {@link ChatLineParser} and looking the body up in {@link EchoSuppressor}, with the linear scan it replaced.
+ * {@code pending} texts are registered and then {@code lines} non-matching chat lines are checked against
+ * them, which is the common case since most chat is not an echo. Run with {@code ./gradlew echoBenchmark};
+ * pass {@code -Pargs="pending lines"} to change the sizes.
+ */
+public final class EchoSuppressorBenchmark {
+    private static final long WINDOW_MS = 3000;
+    private static final int ROUNDS = 5;
+    
+    private EchoSuppressorBenchmark() {}
+    
+    public static void main(String[] args) {
+        int pending = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        
+        Random random = new Random(1);
+        String[] texts = new String[pending];
+        for (int i = 0; i < pending; i++) texts[i] = "#" + randomText(random, 8 + random.nextInt(24));
+        String[] chat = new String[1024];
+        for (int i = 0; i < chat.length; i++) chat[i] = "<Player" + i + "> " + randomText(random, 70);
+        
+        ChatLineParser parser = new ChatLineParser(List.of("<{sender}> {message}", "[{rank}] {sender} » {message}"));
+        EchoSuppressor indexed = new EchoSuppressor(WINDOW_MS);
+        LinearEchoSet linear = new LinearEchoSet(WINDOW_MS);
+        for (String text : texts) {
+            indexed.register(0, text);
+            linear.register(0, text);
+        }
+        
+        System.out.printf("%d pending texts, %d lines of %d chars%n", pending, lines, chat[0].length());
+        for (int round = 0; round < ROUNDS; round++) {
+            long linearNs = time(lines, i -> linear.consume(chat[i & 1023], 1));
+            long indexedNs = time(lines, i -> {
+                ChatLineParser.ParsedLine line = parser.parse(chat[i & 1023]);
+                return indexed.consumeExact(line != null ? line.body : chat[i & 1023], 1);
+            });
+            System.out.printf("round %d: linear %.3f us/line, parsed + indexed %.3f us/line%n", round,
+                linearNs / 1000.0 / lines, indexedNs / 1000.0 / lines);
+        }
+    }
+    
+    private static long time(int lines, LineCheck check) {
+        int echoes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < lines; i++) {
+            if (check.consume(i)) echoes++;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (echoes != 0) throw new IllegalStateException("benchmark lines must not be echoes");
+        return elapsed;
+    }
+    
+    private static String randomText(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) chars[i] = (char) ('a' + random.nextInt(6));
+        return new String(chars);
+    }
+    
+    @FunctionalInterface
+    private interface LineCheck {
+        boolean consume(int index);
+    }
+    
+    /**
+     * The map scan {@link EchoSuppressor} replaced: an exact lookup, then a {@code contains} test against
+     * every pending text, sweeping expired ones on the way.
+     */
+    private static final class LinearEchoSet {
+        private final long windowMs;
+        private final Map<String, Long> sent = new HashMap<>();
+        
+        LinearEchoSet(long windowMs) {
+            this.windowMs = windowMs;
+        }
+        
+        void register(long now, String text) {
+            sent.put(text, now);
+        }
+        
+        boolean consume(String line, long now) {
+            Long sentAt = sent.get(line);
+            if (sentAt != null && now - sentAt < windowMs) {
+                sent.remove(line);
+                return true;
+            }
+            
+            long cutoff = now - windowMs;
+            for (Iterator<Map.Entry<String, Long>> it = sent.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Long> entry = it.next();
+                if (entry.getValue() < cutoff) {
+                    it.remove();
+                } else if (line.contains(entry.getKey())) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
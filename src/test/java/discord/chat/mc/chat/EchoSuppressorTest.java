@@ -0,0 +1,80 @@
+package discord.chat.mc.chat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EchoSuppressorTest {
+    private static final long WINDOW_MS = 3000;
+    
+    @Test
+    void exactMatchSuppressesOnlyTheWholeText() {
+        EchoSuppressor echoes = new EchoSuppressor(WINDOW_MS);
+        echoes.register(0, "hi");
+        
+        assertFalse(echoes.consumeExact("[Server] hi everyone", 10));
+        assertFalse(echoes.consumeExact("hi ", 20));
+        assertTrue(echoes.consumeExact("hi", 30));
+        assertFalse(echoes.consumeExact("hi", 40));
+        assertEquals(1, echoes.getSuppressedCount());
+    }
+    
+    @Test
+    void expectsOneEchoPerSend() {
+        EchoSuppressor echoes = new EchoSuppressor(WINDOW_MS);
+        echoes.register(0, "gg");
+        echoes.register(50, "gg");
+        
+        assertEquals(2, echoes.getPendingCount());
+        assertTrue(echoes.consumeExact("gg", 100));
+        assertTrue(echoes.consumeExact("gg", 110));
+        assertFalse(echoes.consumeExact("gg", 120));
+        assertEquals(0, echoes.getPendingCount());
+    }
+    
+    @Test
+    void exactMatchIgnoresEchoesOutsideTheWindow() {
+        EchoSuppressor echoes = new EchoSuppressor(WINDOW_MS);
+        echoes.register(0, "hello");
+        
+        assertFalse(echoes.consumeExact("hello", WINDOW_MS));
+        assertEquals(1, echoes.getExpiredCount());
+        assertEquals(0, echoes.getPendingCount());
+    }
+    
+    @Test
+    void expiresOnTheWheelWithoutALookup() {
+        EchoSuppressor echoes = new EchoSuppressor(WINDOW_MS);
+        for (int i = 0; i < 100; i++) echoes.register(0, "old " + i);
+        echoes.register(2000, "recent");
+        
+        assertFalse(echoes.consumeExact("unrelated", WINDOW_MS + 200));
+        assertEquals(100, echoes.getExpiredCount());
+        assertEquals(1, echoes.getPendingCount());
+        assertTrue(echoes.consumeExact("recent", WINDOW_MS + 300));
+    }
+    
+    @Test
+    void resendingExtendsTheWindow() {
+        EchoSuppressor echoes = new EchoSuppressor(WINDOW_MS);
+        echoes.register(0, "again");
+        echoes.register(2000, "again");
+        
+        assertTrue(echoes.consumeExact("again", WINDOW_MS + 200));
+        assertEquals(0, echoes.getExpiredCount());
+        assertEquals(1, echoes.getPendingCount());
+    }
+    
+    @Test
+    void survivesLongIdleGaps() {
+        EchoSuppressor echoes = new EchoSuppressor(WINDOW_MS);
+        echoes.register(0, "before");
+        echoes.register(1_000_000, "after");
+        
+        assertEquals(1, echoes.getExpiredCount());
+        assertTrue(echoes.consumeExact("after", 1_000_100));
+        assertFalse(echoes.consumeExact("before", 1_000_200));
+    }
+}
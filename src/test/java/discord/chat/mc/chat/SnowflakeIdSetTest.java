@@ -0,0 +1,55 @@
+package discord.chat.mc.chat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdSetTest {
+    private static final long WINDOW_MS = 900_000;
+    private static final long NOW = 1_700_000_000_000L;
+    
+    @Test
+    void remembersEveryIdOfABurstBeyondCapacity() {
+        SnowflakeIdSet ids = new SnowflakeIdSet(16, WINDOW_MS);
+        for (int i = 0; i < 1000; i++) assertTrue(ids.markIfAbsent(snowflake(NOW - 1000, i), NOW));
+        
+        for (int i = 0; i < 1000; i++) assertFalse(ids.markIfAbsent(snowflake(NOW - 1000, i), NOW), "id " + i);
+        assertEquals(0, ids.getRotationCount());
+        assertEquals(0, ids.getWatermark());
+    }
+    
+    @Test
+    void acceptsALateUnseenIdAfterABurst() {
+        SnowflakeIdSet ids = new SnowflakeIdSet(16, WINDOW_MS);
+        assertTrue(ids.markIfAbsent(snowflake(NOW - 60_000, 0), NOW));
+        for (int i = 0; i < 200; i++) ids.markIfAbsent(snowflake(NOW - 1000, i), NOW);
+        
+        assertTrue(ids.markIfAbsent(snowflake(NOW - 30_000, 0), NOW));
+        assertFalse(ids.markIfAbsent(snowflake(NOW - 60_000, 0), NOW));
+        assertEquals(0, ids.getTooOldCount());
+    }
+    
+    @Test
+    void raisesTheWatermarkOnlyWhenAGenerationAgesOut() {
+        SnowflakeIdSet ids = new SnowflakeIdSet(16, WINDOW_MS);
+        long first = NOW - WINDOW_MS + 1000;
+        long second = first + WINDOW_MS / 2 + 1;
+        long third = second + WINDOW_MS / 2 + 1;
+        assertTrue(ids.markIfAbsent(snowflake(first, 0), NOW));
+        assertTrue(ids.markIfAbsent(snowflake(second, 0), NOW));
+        assertEquals(0, ids.getWatermark());
+        
+        assertTrue(ids.markIfAbsent(snowflake(third, 0), NOW));
+        assertEquals(2, ids.getRotationCount());
+        assertEquals(snowflake(first, 0) + 1, ids.getWatermark());
+        assertFalse(ids.markIfAbsent(snowflake(first, 0), NOW));
+        assertEquals(1, ids.getTooOldCount());
+        assertFalse(ids.markIfAbsent(snowflake(second, 0), NOW));
+    }
+    
+    private static long snowflake(long timestamp, int sequence) {
+        return ((timestamp - SnowflakeIdSet.DISCORD_EPOCH) << 22) | sequence;
+    }
+}
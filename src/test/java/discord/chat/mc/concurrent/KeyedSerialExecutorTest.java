@@ -0,0 +1,123 @@
+package discord.chat.mc.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyedSerialExecutorTest {
+    private static final int THREADS = 8;
+    private static final int KEYS = 64;
+    private static final int TASKS_PER_KEY = 500;
+    
+    private ExecutorService pool;
+    private KeyedSerialExecutor executor;
+    
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(THREADS);
+        executor = new KeyedSerialExecutor("test", pool);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void runsTasksForEachKeyInSubmissionOrder() throws Exception {
+        // Plain ints on purpose: each lane must see the writes of the task before it without extra synchronization.
+        int[] nextExpected = new int[KEYS];
+        AtomicInteger[] running = new AtomicInteger[KEYS];
+        for (int key = 0; key < KEYS; key++) running[key] = new AtomicInteger();
+        List<String> violations = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(KEYS * TASKS_PER_KEY);
+        
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            int first = p;
+            producers[p] = new Thread(() -> {
+                for (int seq = 0; seq < TASKS_PER_KEY; seq++) {
+                    for (int key = first; key < KEYS; key += producers.length) {
+                        int k = key;
+                        int expected = seq;
+                        executor.execute(k, () -> {
+                            if (running[k].incrementAndGet() != 1) violations.add("key " + k + " ran concurrently");
+                            if (nextExpected[k] != expected) {
+                                violations.add("key " + k + " ran " + expected + " but expected " + nextExpected[k]);
+                            }
+                            nextExpected[k] = expected + 1;
+                            running[k].decrementAndGet();
+                            done.countDown();
+                        });
+                    }
+                }
+            });
+        }
+        for (Thread producer : producers) producer.start();
+        for (Thread producer : producers) producer.join();
+        
+        assertTrue(done.await(30, TimeUnit.SECONDS), "tasks did not finish in time");
+        assertTrue(violations.isEmpty(), () -> violations.size() + " ordering violations, first: " + violations.get(0));
+        for (int key = 0; key < KEYS; key++) assertEquals(TASKS_PER_KEY, nextExpected[key], "tasks run for key " + key);
+        assertEquals(0, executor.getPendingCount());
+    }
+    
+    @Test
+    void runsDifferentKeysInParallel() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable task = () -> {
+            bothStarted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        executor.execute("a", task);
+        executor.execute("b", task);
+        
+        assertTrue(bothStarted.await(10, TimeUnit.SECONDS), "a blocked key held up another key");
+        release.countDown();
+    }
+    
+    @Test
+    void keepsRunningAKeyAfterATaskThrows() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.execute("a", () -> { throw new IllegalStateException("boom"); });
+        executor.execute("a", ran::countDown);
+        
+        assertTrue(ran.await(10, TimeUnit.SECONDS), "task after a failure never ran");
+    }
+    
+    @Test
+    void refusesWorkBeyondMaxPending() throws Exception {
+        executor = new KeyedSerialExecutor("bounded", pool, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocker = () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        
+        assertTrue(executor.tryExecute("a", blocker));
+        assertTrue(executor.tryExecute("a", blocker));
+        assertFalse(executor.tryExecute("b", blocker));
+        release.countDown();
+    }
+}
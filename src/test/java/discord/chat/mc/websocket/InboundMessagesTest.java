@@ -0,0 +1,60 @@
+package discord.chat.mc.websocket;
+
+import com.google.gson.stream.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InboundMessagesTest {
+    private static final String OVERSIZED = "x".repeat(InboundMessages.MAX_FIELD_LENGTH + 1);
+    
+    @Test
+    void decodesAChatMessage() throws IOException {
+        DiscordWebSocketServer.ChatMessage message = decode(
+            "{\"type\":\"discord_message\",\"author\":\"Bob\",\"content\":\"say \\\"hi\\\"\",\"messageId\":\"42\",\"targetTick\":7}");
+        
+        assertEquals("Bob", message.author);
+        assertEquals("say \"hi\"", message.content);
+        assertEquals("42", message.messageId);
+        assertEquals(7, message.targetTick);
+    }
+    
+    @Test
+    void treatsOversizedValuesAsAbsent() throws IOException {
+        DiscordWebSocketServer.ChatMessage message = decode(
+            "{\"author\":\"" + OVERSIZED + "\",\"content\":\"" + OVERSIZED + "\",\"messageId\":\"" + OVERSIZED + "\"}");
+        
+        assertEquals("Unknown", message.author);
+        assertEquals("", message.content);
+        assertNull(message.messageId);
+    }
+    
+    @Test
+    void skipsOversizedAndUnknownFields() throws IOException {
+        DiscordWebSocketServer.ChatMessage message = decode(
+            "{\"" + OVERSIZED + "\":\"a\",\"extra\":{\"nested\":[\"" + OVERSIZED + "\"]},\"content\":\"hello\"}");
+        
+        assertEquals("hello", message.content);
+    }
+    
+    @Test
+    void keepsValuesAtTheLimit() throws IOException {
+        String longest = "y".repeat(InboundMessages.MAX_FIELD_LENGTH);
+        assertEquals(longest, decode("{\"content\":\"" + longest + "\"}").content);
+    }
+    
+    @Test
+    void peeksPastOversizedFields() {
+        assertEquals("ping", MessageDispatcher.peekType("{\"pad\":\"" + OVERSIZED + "\",\"type\":\"ping\"}"));
+        assertNull(MessageDispatcher.peekType("{\"type\":\"" + OVERSIZED + "\"}"));
+    }
+    
+    private static DiscordWebSocketServer.ChatMessage decode(String json) throws IOException {
+        try (JsonReader reader = InboundMessages.open(json)) {
+            return InboundMessages.readChatMessage(reader);
+        }
+    }
+}